@@ -0,0 +1,89 @@
+package org.jahia.modules.tmdbprovider;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Http client answering TMDB requests from the recorded fixtures, without any network access.
+ * <p>
+ * The fixture of a request is the classpath resource <code>/fixtures</code> followed by the request path and
+ * <code>.json</code>, like <code>/fixtures/3/movie/550.json</code>. The next pages of a paginated request are read from
+ * the same name followed by the page, like <code>/fixtures/3/discover/movie-page2.json</code>, and a page after the last
+ * one is empty, as in TMDB. The other query parameters are ignored. Requests without a fixture get a TMDB 404 payload.
+ * <p>
+ * The first discover and search results are recorded, the movies following them are generated.
+ */
+public final class FixtureHttpClient extends StubHttpClient {
+
+    private static final Pattern PAGE = Pattern.compile("(?:^|&)page=(\\d+)");
+    private static final Pattern TOTAL_PAGES = Pattern.compile("\"total_pages\":\\s*(\\d+)");
+
+    private static final ConcurrentMap<String, Optional<byte[]>> FIXTURES = new ConcurrentHashMap<>();
+
+    public FixtureHttpClient() {
+        super(uri -> getFixture(uri.getPath(), getPage(uri)));
+    }
+
+    /**
+     * @return the <code>page</code> parameter of a request, 1 if there is none
+     */
+    public static int getPage(URI uri) {
+        Matcher matcher = PAGE.matcher(StringUtils.defaultString(uri.getRawQuery()));
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : 1;
+    }
+
+    /**
+     * @return the fixture of a page of a request path, or <code>null</code> if there is none
+     */
+    public static byte[] readFixture(String path, int page) throws IOException {
+        if (page <= 1) {
+            return readFixture(path);
+        }
+        byte[] fixture = readFixture(path + "-page" + page);
+        if (fixture == null) {
+            byte[] firstPage = readFixture(path);
+            Matcher totalPages = firstPage != null ? TOTAL_PAGES.matcher(new String(firstPage, StandardCharsets.UTF_8)) : null;
+            if (totalPages != null && totalPages.find() && page > Integer.parseInt(totalPages.group(1))) {
+                fixture = ("{\"page\":" + page + ",\"results\":[],\"total_pages\":" + totalPages.group(1) + "}").getBytes(StandardCharsets.UTF_8);
+            }
+        }
+        return fixture;
+    }
+
+    /**
+     * @return the fixture of a request path, or <code>null</code> if there is none
+     */
+    public static byte[] readFixture(String path) throws IOException {
+        try (InputStream in = FixtureHttpClient.class.getResourceAsStream("/fixtures" + path + ".json")) {
+            if (in == null) {
+                return null;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static byte[] getFixture(String path, int page) throws IOException {
+        String key = path + "#" + page;
+        Optional<byte[]> fixture = FIXTURES.get(key);
+        if (fixture == null) {
+            fixture = Optional.ofNullable(readFixture(path, page));
+            FIXTURES.putIfAbsent(key, fixture);
+        }
+        return fixture.orElse(null);
+    }
+}
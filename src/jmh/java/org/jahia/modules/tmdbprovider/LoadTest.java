@@ -0,0 +1,135 @@
+package org.jahia.modules.tmdbprovider;
+
+import net.sf.ehcache.CacheManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.jahia.modules.external.ExternalQuery;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Drives concurrent traffic through the provider against a {@link TMDBStubServer}, and reports the throughput, the
+ * latency percentiles of every operation and the number of requests that reached the stub.
+ * <p>
+ * Run with <code>mvn test-compile exec:exec@load-test -P benchmark</code>. The load is set by the
+ * <code>load.threads</code>, <code>load.duration</code> (seconds) and <code>load.requestsPerSecond</code> properties,
+ * and the behavior of the stub by <code>load.latency</code>, <code>load.latencyJitter</code>,
+ * <code>load.errorRate</code> and <code>load.throttleRate</code>.
+ */
+public final class LoadTest {
+
+    private static final String[] MOVIE_IDS = {"550", "497", "14", "745", "603"};
+    private static final String[] PERSON_IDS = {"819", "287", "1283", "7470", "7499", "7467"};
+
+    private final TMDBDataSource dataSource;
+    private final TMDBMetrics metrics = new TMDBMetrics();
+    private final ExternalQuery titleQuery = QuerySupport.query("jnt:movie", QuerySupport.compare("jcr:title", "=", "Fight Club"), 0, 20);
+    private final ExternalQuery discoverQuery = QuerySupport.query("jnt:movie", null, 0, 20);
+    private final ExternalQuery castQuery = QuerySupport.query("jnt:cast", QuerySupport.compare("id", "=", "287"), 0, 20);
+
+    private LoadTest(TMDBDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = Integer.getInteger("load.threads", 16);
+        int duration = Integer.getInteger("load.duration", 30);
+
+        try (TMDBStubServer server = new TMDBStubServer(0, Long.getLong("load.latency", 50), Long.getLong("load.latencyJitter", 50),
+                Double.parseDouble(System.getProperty("load.errorRate", "0")), Double.parseDouble(System.getProperty("load.throttleRate", "0")), 64);
+             CloseableHttpClient httpClient = HttpClients.custom().setMaxConnTotal(64).setMaxConnPerRoute(64).build()) {
+            Map<String, Object> config = new HashMap<>();
+            config.put("apiScheme", "http");
+            config.put("apiHost", "localhost");
+            config.put("apiPort", server.getPort());
+            config.put("requestsPerSecond", Integer.getInteger("load.requestsPerSecond", 1000));
+            CacheManager cacheManager = DataSourceSupport.newCacheManager("tmdb-load-test");
+            TMDBDataSource dataSource = DataSourceSupport.newDataSource(httpClient, cacheManager, config);
+            try {
+                dataSource.createToken();
+                new LoadTest(dataSource).run(threads, duration, server);
+            } finally {
+                dataSource.stop();
+                cacheManager.shutdown();
+            }
+        }
+    }
+
+    private void run(int threads, int duration, TMDBStubServer server) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(duration);
+        for (int i = 0; i < threads; i++) {
+            workers.execute(() -> {
+                while (System.nanoTime() < end) {
+                    execute();
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(duration + 60, TimeUnit.SECONDS);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        long operations = 0;
+        System.out.printf("%nLoad test: %d threads during %.1f s%n%n", threads, elapsed);
+        for (Map.Entry<String, TMDBMetrics.TimerSnapshot> entry : metrics.getTimers().entrySet()) {
+            operations += entry.getValue().getCount();
+            System.out.printf("  %-20s %s%n", entry.getKey(), entry.getValue());
+        }
+        System.out.printf("%nThroughput: %.1f operations/s, errors: %s%n", operations / elapsed, metrics.getCounters());
+        System.out.printf("%nUpstream calls: %d, %.1f per 100 operations%n", server.getTotalCalls(), server.getTotalCalls() * 100d / Math.max(operations, 1));
+        for (Map.Entry<String, Long> entry : server.getCalls().entrySet()) {
+            System.out.printf("  %-35s %d%n", entry.getKey(), entry.getValue());
+        }
+        System.out.printf("Upstream statuses: %s%n%nProvider metrics:%n", server.getStatuses());
+        for (Map.Entry<String, TMDBMetrics.TimerSnapshot> entry : dataSource.getMetrics().getTimers().entrySet()) {
+            System.out.printf("  %-35s %s%n", entry.getKey(), entry.getValue());
+        }
+        System.out.printf("  %s%n", dataSource.getMetrics().getCounters());
+    }
+
+    /**
+     * Runs a random operation, weighted like the traffic of a site browsing the movies.
+     */
+    private void execute() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String movieId = MOVIE_IDS[random.nextInt(MOVIE_IDS.length)];
+        int choice = random.nextInt(100);
+        String operation = null;
+        long start = System.nanoTime();
+        try {
+            if (choice < 15) {
+                operation = "getChildren(month)";
+                String month = (1990 + random.nextInt(30)) + "/" + String.format("%02d", 1 + random.nextInt(12));
+                dataSource.getChildren("/movies/" + month).toArray();
+            } else if (choice < 30) {
+                operation = "getChildren(movie)";
+                dataSource.getChildren("/movies/1999/10/" + movieId);
+            } else if (choice < 60) {
+                operation = "getItemByPath(movie)";
+                dataSource.getItemByPath("/movies/1999/10/" + movieId);
+            } else if (choice < 70) {
+                operation = "getItemByPath(credit)";
+                dataSource.getItemByPath("/movies/1999/10/550/cast_5_287");
+            } else if (choice < 80) {
+                operation = "getItemByPath(person)";
+                dataSource.getItemByPath("/persons/" + PERSON_IDS[random.nextInt(PERSON_IDS.length)]);
+            } else if (choice < 90) {
+                operation = "search(title)";
+                dataSource.search(titleQuery);
+            } else if (choice < 95) {
+                operation = "search(discover)";
+                dataSource.search(discoverQuery);
+            } else {
+                operation = "search(cast)";
+                dataSource.search(castQuery);
+            }
+        } catch (Exception e) {
+            metrics.increment(operation);
+        } finally {
+            metrics.time(operation, start);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.jahia.modules.tmdbprovider;
+
+import net.sf.ehcache.CacheManager;
+import org.jahia.modules.external.ExternalData;
+import org.jahia.modules.external.ExternalQuery;
+import org.openjdk.jmh.annotations.*;
+
+import javax.jcr.RepositoryException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of the provider, against the recorded TMDB fixtures, with a warm cache : every call is answered from the
+ * memory cache. The same calls with a cold cache are measured by {@link TMDBDataSourceColdBenchmark}. Run with
+ * <code>mvn verify -P benchmark</code>, which also reports the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TMDBDataSourceBenchmark {
+
+    static final String MOVIE_PATH = "/movies/1999/10/550";
+
+    private CacheManager cacheManager;
+    private TMDBDataSource dataSource;
+    private ExternalQuery titleQuery;
+    private ExternalQuery discoverQuery;
+    private ExternalQuery castQuery;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        cacheManager = DataSourceSupport.newCacheManager("tmdb-benchmark");
+        dataSource = DataSourceSupport.newDataSource(new FixtureHttpClient(), cacheManager);
+        // Opens the session needed to read the lists of the account
+        dataSource.createToken();
+        titleQuery = newTitleQuery();
+        discoverQuery = newDiscoverQuery();
+        castQuery = newCastQuery();
+    }
+
+    static ExternalQuery newTitleQuery() {
+        return QuerySupport.query("jnt:movie", QuerySupport.compare("jcr:title", "=", "Fight Club"), 0, 20);
+    }
+
+    static ExternalQuery newDiscoverQuery() {
+        return QuerySupport.query("jnt:movie", null, 0, 20);
+    }
+
+    static ExternalQuery newCastQuery() {
+        return QuerySupport.query("jnt:cast", QuerySupport.compare("id", "=", "287"), 0, 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        dataSource.stop();
+        cacheManager.shutdown();
+    }
+
+    @Benchmark
+    public ExternalData movie() throws RepositoryException {
+        return dataSource.getItemByIdentifier("movie-550");
+    }
+
+    @Benchmark
+    public ExternalData person() throws RepositoryException {
+        return dataSource.getItemByIdentifier("person-287");
+    }
+
+    @Benchmark
+    public ExternalData credit() throws RepositoryException {
+        return dataSource.getItemByIdentifier("moviecredits-550-cast_5_287");
+    }
+
+    @Benchmark
+    public List<String> rootChildren() throws RepositoryException {
+        return dataSource.getChildren("/");
+    }
+
+    @Benchmark
+    public List<String> yearChildren() throws RepositoryException {
+        return dataSource.getChildren("/movies");
+    }
+
+    @Benchmark
+    public List<String> monthChildren() throws RepositoryException {
+        return dataSource.getChildren("/movies/1999");
+    }
+
+    @Benchmark
+    public int movieChildren() throws RepositoryException {
+        // The list of movies is lazy, reading it fetches the pages
+        return dataSource.getChildren("/movies/1999/10").toArray().length;
+    }
+
+    @Benchmark
+    public List<String> creditChildren() throws RepositoryException {
+        return dataSource.getChildren(MOVIE_PATH);
+    }
+
+    @Benchmark
+    public List<String> listChildren() throws RepositoryException {
+        return dataSource.getChildren("/lists/28");
+    }
+
+    @Benchmark
+    public String[] i18nProperty() throws RepositoryException {
+        return dataSource.getI18nPropertyValues(MOVIE_PATH, "fr", "overview");
+    }
+
+    @Benchmark
+    public ImageConfiguration configuration() throws Exception {
+        return dataSource.getConfiguration();
+    }
+
+    @Benchmark
+    public List<String> searchTitle() throws RepositoryException {
+        return dataSource.search(titleQuery);
+    }
+
+    @Benchmark
+    public List<String> searchDiscover() throws RepositoryException {
+        return dataSource.search(discoverQuery);
+    }
+
+    @Benchmark
+    public List<String> searchCast() throws RepositoryException {
+        return dataSource.search(castQuery);
+    }
+}
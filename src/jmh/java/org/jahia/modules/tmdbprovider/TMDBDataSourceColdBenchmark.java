@@ -0,0 +1,119 @@
+package org.jahia.modules.tmdbprovider;
+
+import net.sf.ehcache.CacheManager;
+import org.jahia.modules.external.ExternalData;
+import org.jahia.modules.external.ExternalQuery;
+import org.openjdk.jmh.annotations.*;
+
+import javax.jcr.RepositoryException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The calls of {@link TMDBDataSourceBenchmark} with a cold cache : every call clears the cache first, and is then
+ * answered by decoding the fixtures. The cache is cleared within the measured call rather than in an invocation
+ * setup, whose overhead would dominate calls this short, and {@link #clearCache()} measures the clearing alone.
+ * <p>
+ * The children of the root, year and month folders are computed without the cache, so they only have a warm variant.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TMDBDataSourceColdBenchmark {
+
+    private CacheManager cacheManager;
+    private TMDBDataSource dataSource;
+    private ExternalQuery titleQuery;
+    private ExternalQuery discoverQuery;
+    private ExternalQuery castQuery;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        cacheManager = DataSourceSupport.newCacheManager("tmdb-cold-benchmark");
+        dataSource = DataSourceSupport.newDataSource(new FixtureHttpClient(), cacheManager);
+        dataSource.createToken();
+        titleQuery = TMDBDataSourceBenchmark.newTitleQuery();
+        discoverQuery = TMDBDataSourceBenchmark.newDiscoverQuery();
+        castQuery = TMDBDataSourceBenchmark.newCastQuery();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        dataSource.stop();
+        cacheManager.shutdown();
+    }
+
+    @Benchmark
+    public void clearCache() {
+        cacheManager.clearAll();
+    }
+
+    @Benchmark
+    public ExternalData movie() throws RepositoryException {
+        cacheManager.clearAll();
+        return dataSource.getItemByIdentifier("movie-550");
+    }
+
+    @Benchmark
+    public ExternalData person() throws RepositoryException {
+        cacheManager.clearAll();
+        return dataSource.getItemByIdentifier("person-287");
+    }
+
+    @Benchmark
+    public ExternalData credit() throws RepositoryException {
+        cacheManager.clearAll();
+        return dataSource.getItemByIdentifier("moviecredits-550-cast_5_287");
+    }
+
+    @Benchmark
+    public int movieChildren() throws RepositoryException {
+        cacheManager.clearAll();
+        return dataSource.getChildren("/movies/1999/10").toArray().length;
+    }
+
+    @Benchmark
+    public List<String> creditChildren() throws RepositoryException {
+        cacheManager.clearAll();
+        return dataSource.getChildren(TMDBDataSourceBenchmark.MOVIE_PATH);
+    }
+
+    @Benchmark
+    public List<String> listChildren() throws RepositoryException {
+        cacheManager.clearAll();
+        return dataSource.getChildren("/lists/28");
+    }
+
+    @Benchmark
+    public String[] i18nProperty() throws RepositoryException {
+        cacheManager.clearAll();
+        return dataSource.getI18nPropertyValues(TMDBDataSourceBenchmark.MOVIE_PATH, "fr", "overview");
+    }
+
+    @Benchmark
+    public ImageConfiguration configuration() throws Exception {
+        cacheManager.clearAll();
+        return dataSource.getConfiguration();
+    }
+
+    @Benchmark
+    public List<String> searchTitle() throws RepositoryException {
+        cacheManager.clearAll();
+        return dataSource.search(titleQuery);
+    }
+
+    @Benchmark
+    public List<String> searchDiscover() throws RepositoryException {
+        cacheManager.clearAll();
+        return dataSource.search(discoverQuery);
+    }
+
+    @Benchmark
+    public List<String> searchCast() throws RepositoryException {
+        cacheManager.clearAll();
+        return dataSource.search(castQuery);
+    }
+}
@@ -0,0 +1,215 @@
+package org.jahia.modules.tmdbprovider;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local http server answering TMDB requests from the recorded fixtures, to load test the provider without the rate
+ * limits of TMDB.
+ * <p>
+ * Pages are read from their fixtures as with {@link FixtureHttpClient}. A resource without a fixture of its own is
+ * answered with the fixture of another resource of the same endpoint, with its id replaced, so that any movie or person
+ * can be requested. Latency, server errors and throttling can be injected,
+ * and the requests are counted per endpoint.
+ * <p>
+ * Can also be started on its own, with the <code>stub.port</code>, <code>stub.latency</code>,
+ * <code>stub.latencyJitter</code>, <code>stub.errorRate</code> and <code>stub.throttleRate</code> system properties,
+ * and used by a provider configured with the <code>http</code> scheme, <code>localhost</code> host and the port.
+ */
+public final class TMDBStubServer implements Closeable {
+
+    private static final Map<String, String> ENDPOINT_FIXTURES = new HashMap<>();
+
+    static {
+        ENDPOINT_FIXTURES.put("/3/movie/{id}", "/3/movie/550");
+        ENDPOINT_FIXTURES.put("/3/movie/{id}/credits", "/3/movie/550/credits");
+        ENDPOINT_FIXTURES.put("/3/person/{id}", "/3/person/287");
+        ENDPOINT_FIXTURES.put("/3/person/{id}/movie_credits", "/3/person/287/movie_credits");
+        ENDPOINT_FIXTURES.put("/3/list/{id}", "/3/list/28");
+        ENDPOINT_FIXTURES.put("/3/account/{id}/lists", "/3/account/548/lists");
+    }
+
+    private static final byte[] NOT_FOUND = error(34, "The resource you requested could not be found.");
+    private static final byte[] SERVER_ERROR = error(11, "Internal error: Something went wrong, contact TMDb.");
+    private static final byte[] THROTTLED = error(25, "Your request count is over the allowed limit.");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long latency;
+    private final long latencyJitter;
+    private final double errorRate;
+    private final double throttleRate;
+
+    private final ConcurrentMap<String, Optional<byte[]>> fixtures = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongAdder> calls = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+    /**
+     * @param port          the port to listen to on the loopback interface, 0 for any free port
+     * @param latency       the time in milliseconds spent before answering a request
+     * @param latencyJitter the maximum random time in milliseconds added to the latency
+     * @param errorRate     the part of the requests answered with a 503, between 0 and 1
+     * @param throttleRate  the part of the requests answered with a 429, between 0 and 1
+     * @param threads       the number of requests handled concurrently
+     */
+    public TMDBStubServer(int port, long latency, long latencyJitter, double errorRate, double throttleRate, int threads) throws IOException {
+        this.latency = latency;
+        this.latencyJitter = latencyJitter;
+        this.errorRate = errorRate;
+        this.throttleRate = throttleRate;
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    public static void main(String[] args) throws IOException {
+        TMDBStubServer server = new TMDBStubServer(Integer.getInteger("stub.port", 8089), Long.getLong("stub.latency", 50),
+                Long.getLong("stub.latencyJitter", 50), Double.parseDouble(System.getProperty("stub.errorRate", "0")),
+                Double.parseDouble(System.getProperty("stub.throttleRate", "0")), Integer.getInteger("stub.threads", 64));
+        System.out.println("TMDB stub server listening on http://localhost:" + server.getPort());
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return the number of requests received, keyed by endpoint template
+     */
+    public Map<String, Long> getCalls() {
+        Map<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : calls.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().sum());
+        }
+        return values;
+    }
+
+    /**
+     * @return the number of responses sent, keyed by status
+     */
+    public Map<Integer, Long> getStatuses() {
+        Map<Integer, Long> values = new TreeMap<>();
+        for (Map.Entry<Integer, LongAdder> entry : statuses.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().sum());
+        }
+        return values;
+    }
+
+    public long getTotalCalls() {
+        long total = 0;
+        for (LongAdder count : calls.values()) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String endpoint = TMDBMetrics.getEndpointTemplate(path);
+            calls.computeIfAbsent(endpoint, k -> new LongAdder()).increment();
+
+            long delay = latency + (latencyJitter > 0 ? ThreadLocalRandom.current().nextLong(latencyJitter + 1) : 0);
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+
+            double random = ThreadLocalRandom.current().nextDouble();
+            if (random < throttleRate) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 429, THROTTLED);
+            } else if (random < throttleRate + errorRate) {
+                send(exchange, 503, SERVER_ERROR);
+            } else {
+                byte[] fixture = getFixture(path, FixtureHttpClient.getPage(exchange.getRequestURI()), endpoint);
+                send(exchange, fixture != null ? 200 : 404, fixture != null ? fixture : NOT_FOUND);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        statuses.computeIfAbsent(status, k -> new LongAdder()).increment();
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private byte[] getFixture(String path, int page, String endpoint) throws IOException {
+        String key = path + "#" + page;
+        Optional<byte[]> fixture = fixtures.get(key);
+        if (fixture == null) {
+            byte[] body = FixtureHttpClient.readFixture(path, page);
+            String endpointFixture = ENDPOINT_FIXTURES.get(endpoint);
+            if (body == null && endpointFixture != null) {
+                body = replaceId(FixtureHttpClient.readFixture(endpointFixture), getId(endpointFixture, endpoint), getId(path, endpoint));
+            }
+            fixture = Optional.ofNullable(body);
+            fixtures.putIfAbsent(key, fixture);
+        }
+        return fixture.orElse(null);
+    }
+
+    /**
+     * @return the segment of a path matching the <code>{id}</code> segment of its endpoint template
+     */
+    private static String getId(String path, String endpoint) {
+        String[] segments = path.split("/");
+        String[] templateSegments = endpoint.split("/");
+        for (int i = 0; i < templateSegments.length && i < segments.length; i++) {
+            if (templateSegments[i].equals("{id}")) {
+                return segments[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replaces the first <code>id</code> field holding the id of the fixture, which is the id of the resource.
+     */
+    private static byte[] replaceId(byte[] body, String fixtureId, String id) {
+        if (body == null || fixtureId == null || id == null) {
+            return body;
+        }
+        String json = new String(body, StandardCharsets.UTF_8);
+        for (String field : new String[]{"\"id\": " + fixtureId + ",", "\"id\": \"" + fixtureId + "\","}) {
+            int index = json.indexOf(field);
+            if (index >= 0) {
+                String replacement = field.replace(fixtureId, id);
+                return (json.substring(0, index) + replacement + json.substring(index + field.length())).getBytes(StandardCharsets.UTF_8);
+            }
+        }
+        return body;
+    }
+
+    private static byte[] error(int code, String message) {
+        return ("{\"success\":false,\"status_code\":" + code + ",\"status_message\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,115 @@
+package org.jahia.modules.tmdbprovider;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.store.MemoryStoreEvictionPolicy;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Function;
+
+/**
+ * The regions of the TMDB cache. Every key is stored in the region matching its prefix, and every region has its own
+ * time to live, size and eviction policy, set in the configuration as <code>ttl=86400, maxEntries=1000, eviction=LRU</code>.
+ */
+enum CacheRegion {
+
+    CONFIGURATION(TMDBDataSource.Config::cacheConfiguration, true, true, "configuration", "genres"),
+    DISCOVER(TMDBDataSource.Config::cacheDiscover, true, true, "movies-folder-", "movies-discover-"),
+    MOVIES(TMDBDataSource.Config::cacheMovies, true, true, "movie-", "fullmovie-"),
+    CREDITS(TMDBDataSource.Config::cacheCredits, true, true, "movies-credits-", "movie_credits_query_"),
+    PERSONS(TMDBDataSource.Config::cachePersons, true, true, "person-"),
+    // Lists belong to the account of the current session and change often, they are not kept on disk
+    LISTS(TMDBDataSource.Config::cacheLists, false, true, "lists", "list-", "fulllist-"),
+    // Query results depend on the entries of the other regions, they are computed again rather than read from the disk
+    // or served stale
+    QUERIES(TMDBDataSource.Config::cacheQueries, false, false, "query-"),
+    // Markers and not found entries are cheap to compute again, and would only fill the disk with small records
+    MARKERS(TMDBDataSource.Config::cacheMarkers, false, false, "indexedfullmovie-"),
+    NOT_FOUND(TMDBDataSource.Config::cacheNotFound, false, false, TMDBDataSource.NOT_FOUND_PREFIX);
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheRegion.class);
+
+    private final Function<TMDBDataSource.Config, String> settings;
+    private final boolean persistent;
+    private final boolean servedStale;
+    private final String[] prefixes;
+
+    CacheRegion(Function<TMDBDataSource.Config, String> settings, boolean persistent, boolean servedStale, String... prefixes) {
+        this.settings = settings;
+        this.persistent = persistent;
+        this.servedStale = servedStale;
+        this.prefixes = prefixes;
+    }
+
+    /**
+     * @return whether the entries of this region are also written to the disk cache
+     */
+    boolean isPersistent() {
+        return persistent;
+    }
+
+    /**
+     * @return whether the entries of this region are still served once expired, while they are refreshed
+     */
+    boolean isServedStale() {
+        return servedStale;
+    }
+
+    String getCacheName() {
+        return "tmdb-cache-" + name().toLowerCase();
+    }
+
+    static CacheRegion forKey(String key) {
+        for (CacheRegion region : values()) {
+            for (String prefix : region.prefixes) {
+                if (key.startsWith(prefix)) {
+                    return region;
+                }
+            }
+        }
+        throw new IllegalArgumentException("No cache region for " + key);
+    }
+
+    /**
+     * Creates the Ehcache region, replacing the one created by a previous configuration. In the regions served stale,
+     * entries are kept in memory for <code>staleTimeToLive</code> seconds after their time to live, so that they can
+     * still be served while they are refreshed. The other regions drop them at their time to live.
+     *
+     * @return the time to live of the region in seconds, 0 if entries never expire
+     */
+    long createCache(CacheManager cacheManager, TMDBDataSource.Config config, long staleTimeToLive) {
+        long timeToLive = 86400;
+        CacheConfiguration configuration = new CacheConfiguration(getCacheName(), 1000)
+                .memoryStoreEvictionPolicy(MemoryStoreEvictionPolicy.LRU);
+        for (String setting : StringUtils.split(StringUtils.defaultString(settings.apply(config)), ",")) {
+            String name = StringUtils.trim(StringUtils.substringBefore(setting, "="));
+            String value = StringUtils.trim(StringUtils.substringAfter(setting, "="));
+            try {
+                switch (name) {
+                    case "ttl":
+                        timeToLive = Long.parseLong(value);
+                        break;
+                    case "maxEntries":
+                        configuration.maxEntriesLocalHeap(Integer.parseInt(value));
+                        break;
+                    case "eviction":
+                        configuration.memoryStoreEvictionPolicy(MemoryStoreEvictionPolicy.fromString(value));
+                        break;
+                    default:
+                        logger.warn("Unknown setting {} for cache {}", name, getCacheName());
+                }
+            } catch (IllegalArgumentException e) {
+                logger.warn("Invalid value {} for setting {} of cache {}", value, name, getCacheName());
+            }
+        }
+        configuration.timeToLiveSeconds(timeToLive > 0 ? timeToLive + (servedStale ? staleTimeToLive : 0) : 0);
+        if (cacheManager.cacheExists(getCacheName())) {
+            cacheManager.removeCache(getCacheName());
+        }
+        cacheManager.addCache(new Cache(configuration));
+        return timeToLive;
+    }
+}
@@ -0,0 +1,93 @@
+package org.jahia.modules.tmdbprovider;
+
+/**
+ * Snapshot of the statistics of a TMDB cache region.
+ */
+public final class CacheStatistics {
+
+    private final String name;
+    private final long size;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+    private final long diskHits;
+    private final long staleHits;
+
+    public CacheStatistics(String name, long size, long hits, long misses, long evictions, long expirations, long diskHits,
+                           long staleHits) {
+        this.name = name;
+        this.size = size;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        this.diskHits = diskHits;
+        this.staleHits = staleHits;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of entries in memory
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the number of lookups found in memory
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups not found in memory, including the ones then found on disk
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of entries evicted from memory to make room for new ones
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of entries removed from memory once their time to live passed
+     */
+    public long getExpirations() {
+        return expirations;
+    }
+
+    /**
+     * @return the number of memory misses found on disk
+     */
+    public long getDiskHits() {
+        return diskHits;
+    }
+
+    /**
+     * @return the number of lookups served with a stale entry, while it was refreshed
+     */
+    public long getStaleHits() {
+        return staleHits;
+    }
+
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups > 0 ? (double) (hits + diskHits) / lookups : 0;
+    }
+
+    @Override
+    public String toString() {
+        return name + "[size=" + size + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions
+                + ", expirations=" + expirations + ", diskHits=" + diskHits
+                + ", staleHits=" + staleHits + "]";
+    }
+}
@@ -0,0 +1,152 @@
+package org.jahia.modules.tmdbprovider;
+
+import org.json.JSONException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.RepositoryException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Loads data into the cache in the background, before it is requested : a warm-up plan run after the provider starts,
+ * and prefetches of the data likely to be requested next.
+ * <p>
+ * Tasks run on a single low priority thread, and only use the spare capacity of the rate limit : they wait while the
+ * rate limiter is saturated by the requests of the visitors. Prefetches are dropped when too many are pending.
+ */
+final class CacheWarmer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheWarmer.class);
+
+    private static final long SATURATION_WAIT = 200;
+
+    interface Task {
+        void run() throws RepositoryException, JSONException;
+    }
+
+    private final RateLimiter rateLimiter;
+    private final double maxSaturation;
+    private final ThreadPoolExecutor executor;
+    private final Set<String> pendingPrefetches = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder completedTasks = new LongAdder();
+    private final LongAdder failedTasks = new LongAdder();
+    private final LongAdder droppedPrefetches = new LongAdder();
+
+    /**
+     * @param rateLimiter   the rate limiter in front of TMDB
+     * @param maxSaturation the saturation of the rate limiter above which tasks wait, between 0 and 1
+     * @param queueSize     the maximum number of pending tasks
+     * @param threadFactory creates the thread running the tasks
+     */
+    CacheWarmer(RateLimiter rateLimiter, double maxSaturation, int queueSize, ThreadFactory threadFactory) {
+        this.rateLimiter = rateLimiter;
+        this.maxSaturation = maxSaturation;
+        this.executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(queueSize), threadFactory,
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Runs the steps of a warm-up plan in order. A failed step is logged and does not stop the plan.
+     */
+    void warmUp(String name, List<Task> plan) {
+        try {
+            executor.execute(() -> runPlan(name, plan));
+        } catch (RejectedExecutionException e) {
+            logger.warn("TMDB cache warm-up {} not started, too many tasks are pending", name);
+        }
+    }
+
+    private void runPlan(String name, List<Task> plan) {
+        long start = System.currentTimeMillis();
+        int failures = 0;
+        for (Task task : plan) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            if (!runTask(name, task)) {
+                failures++;
+            }
+        }
+        logger.info("TMDB cache warm-up {} done in {} ms, {} steps failed out of {}", name, System.currentTimeMillis() - start, failures,
+                plan.size());
+    }
+
+    /**
+     * Runs a task in the background, unless a task with the same key is already pending or too many are pending.
+     */
+    void prefetch(String key, Task task) {
+        if (!pendingPrefetches.add(key)) {
+            return;
+        }
+        if (executor.getQueue().remainingCapacity() == 0) {
+            pendingPrefetches.remove(key);
+            droppedPrefetches.increment();
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    runTask(key, task);
+                } finally {
+                    pendingPrefetches.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingPrefetches.remove(key);
+        }
+    }
+
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Waits while the rate limiter is saturated above the maximum saturation, so that a background request only uses
+     * the spare capacity left by the visitors.
+     */
+    void awaitCapacity() throws InterruptedException {
+        while (rateLimiter.getSaturation() > maxSaturation) {
+            Thread.sleep(SATURATION_WAIT);
+        }
+    }
+
+    private boolean runTask(String name, Task task) {
+        try {
+            awaitCapacity();
+            task.run();
+            completedTasks.increment();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (RepositoryException | JSONException | RuntimeException e) {
+            logger.debug("Cache warm-up task {} failed: {}", name, e.getMessage());
+            failedTasks.increment();
+            return false;
+        }
+    }
+
+    long getCompletedTasks() {
+        return completedTasks.sum();
+    }
+
+    long getFailedTasks() {
+        return failedTasks.sum();
+    }
+
+    /**
+     * @return the number of prefetches dropped because too many were pending
+     */
+    long getDroppedPrefetches() {
+        return droppedPrefetches.sum();
+    }
+
+    int getPendingTasks() {
+        return executor.getQueue().size();
+    }
+}
@@ -0,0 +1,136 @@
+package org.jahia.modules.tmdbprovider;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Circuit breaker in front of TMDB.
+ * <p>
+ * The outcome of the last requests is kept in a sliding window. When the part of failures in the window passes the
+ * threshold, the circuit opens and requests fail immediately instead of waiting for TMDB to time out. Once the open
+ * duration has passed, a single probe request is let through : the circuit closes again if it succeeds, and stays open
+ * for another period otherwise.
+ */
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final boolean[] window;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDuration;
+
+    private State state = State.CLOSED;
+    private int position;
+    private int calls;
+    private int failures;
+    private long openUntil;
+
+    private final LongAdder rejectedCalls = new LongAdder();
+    private final LongAdder openings = new LongAdder();
+
+    /**
+     * @param windowSize           the number of requests in the sliding window
+     * @param minimumCalls         the number of requests needed in the window before the circuit can open
+     * @param failureRateThreshold the part of failed requests above which the circuit opens, between 0 and 1
+     * @param openDuration         the time the circuit stays open before a probe request is let through
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, long openDuration, TimeUnit unit) {
+        this.window = new boolean[Math.max(windowSize, 1)];
+        this.minimumCalls = Math.min(Math.max(minimumCalls, 1), window.length);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = unit.toNanos(openDuration);
+    }
+
+    /**
+     * @return <code>true</code> if a request can be sent, <code>false</code> if it must fail immediately
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        long now = System.nanoTime();
+        if (now - openUntil >= 0) {
+            // Let a probe through, and another one after the open duration if it never reports back
+            state = State.HALF_OPEN;
+            openUntil = now + openDuration;
+            return true;
+        }
+        rejectedCalls.increment();
+        return false;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            reset(State.CLOSED);
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (calls >= minimumCalls && failures > calls * failureRateThreshold) {
+                open();
+            }
+        }
+    }
+
+    private void record(boolean failure) {
+        if (calls == window.length) {
+            if (window[position]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+        window[position] = failure;
+        if (failure) {
+            failures++;
+        }
+        position = (position + 1) % window.length;
+    }
+
+    private void open() {
+        reset(State.OPEN);
+        openUntil = System.nanoTime() + openDuration;
+        openings.increment();
+    }
+
+    private void reset(State newState) {
+        state = newState;
+        position = 0;
+        calls = 0;
+        failures = 0;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return the part of failed requests in the sliding window
+     */
+    public synchronized double getFailureRate() {
+        return calls > 0 ? (double) failures / calls : 0;
+    }
+
+    /**
+     * @return the number of requests that failed immediately because the circuit was open
+     */
+    public long getRejectedCalls() {
+        return rejectedCalls.sum();
+    }
+
+    /**
+     * @return the number of times the circuit opened
+     */
+    public long getOpenings() {
+        return openings.sum();
+    }
+}
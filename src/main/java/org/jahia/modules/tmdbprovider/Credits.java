@@ -0,0 +1,135 @@
+package org.jahia.modules.tmdbprovider;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Immutable cast and crew of a movie, built from a <code>/3/movie/{id}/credits</code> payload.
+ */
+public final class Credits implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String movieId;
+    private final List<Cast> cast;
+    private final List<Crew> crew;
+
+    public Credits(String movieId, List<Cast> cast, List<Crew> crew) {
+        this.movieId = movieId;
+        this.cast = cast;
+        this.crew = crew;
+    }
+
+    public String getMovieId() {
+        return movieId;
+    }
+
+    public List<Cast> getCast() {
+        return cast;
+    }
+
+    public List<Crew> getCrew() {
+        return crew;
+    }
+
+    public abstract static class Credit implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String personId;
+        private final String name;
+        private final String profilePath;
+
+        Credit(String personId, String name, String profilePath) {
+            this.personId = personId;
+            this.name = name;
+            this.profilePath = profilePath;
+        }
+
+        public String getPersonId() {
+            return personId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getProfilePath() {
+            return profilePath;
+        }
+
+        /**
+         * @return the name of the node representing this credit under its movie
+         */
+        public abstract String getNodeName();
+    }
+
+    public static final class Cast extends Credit {
+
+        private static final long serialVersionUID = 2L;
+
+        private final String castId;
+        private final String creditId;
+        private final String character;
+        private final String order;
+
+        public Cast(String personId, String castId, String creditId, String name, String character, String order, String profilePath) {
+            super(personId, name, profilePath);
+            this.castId = castId;
+            this.creditId = creditId;
+            this.character = character;
+            this.order = order;
+        }
+
+        public String getCastId() {
+            return castId;
+        }
+
+        /**
+         * @return the id of the role, shared with the credits of the person
+         */
+        public String getCreditId() {
+            return creditId;
+        }
+
+        public String getCharacter() {
+            return character;
+        }
+
+        public String getOrder() {
+            return order;
+        }
+
+        @Override
+        public String getNodeName() {
+            return "cast_" + castId + "_" + getPersonId();
+        }
+    }
+
+    public static final class Crew extends Credit {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String job;
+        private final String department;
+
+        public Crew(String personId, String name, String job, String department, String profilePath) {
+            super(personId, name, profilePath);
+            this.job = job;
+            this.department = department;
+        }
+
+        public String getJob() {
+            return job;
+        }
+
+        public String getDepartment() {
+            return department;
+        }
+
+        @Override
+        public String getNodeName() {
+            return "crew_" + job + "_" + getPersonId();
+        }
+    }
+}
@@ -0,0 +1,610 @@
+package org.jahia.modules.tmdbprovider;
+
+import org.apache.commons.lang.ArrayUtils;
+import org.apache.commons.lang.StringUtils;
+import org.jahia.modules.external.ExternalQuery;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+import javax.jcr.query.qom.*;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Translation of a query on movies into a <code>/3/search/movie</code> or <code>/3/discover/movie</code> request.
+ * <p>
+ * The constraints of the query combined with <code>AND</code> are pushed down to TMDB when possible : a title becomes
+ * the text of a search, and constraints on the release date, the votes, the genres and the adult flag become discover
+ * filters. The first ordering becomes the <code>sort_by</code> parameter of discover. The constraints that cannot be
+ * pushed down exactly are checked on the returned movies instead : a movie whose fields cannot tell whether it matches
+ * must be checked again in full, and is excluded if it still cannot be told.
+ */
+final class DiscoverQuery {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiscoverQuery.class);
+
+    private static final String DEFAULT_SORT = "popularity.desc";
+
+    private static final Map<String, String> SORTS = new HashMap<String, String>();
+
+    static {
+        SORTS.put("popularity", "popularity");
+        SORTS.put("release_date", "primary_release_date");
+        SORTS.put("vote_average", "vote_average");
+        SORTS.put("vote_count", "vote_count");
+        SORTS.put("revenue", "revenue");
+        SORTS.put("jcr:title", "original_title");
+        SORTS.put("original_title", "original_title");
+    }
+
+    interface Genres {
+        /**
+         * @return the TMDB id of a genre, or <code>null</code> if there is no genre with this name
+         */
+        String getId(String name) throws RepositoryException;
+    }
+
+    private final SortedMap<String, String> parameters = new TreeMap<String, String>();
+    private final List<Constraint> checks = new ArrayList<Constraint>();
+    private final List<Constraint> uncovered = new ArrayList<Constraint>();
+    private final List<String> genres = new ArrayList<String>();
+    private final Genres resolver;
+    private String title;
+    private boolean empty;
+
+    private DiscoverQuery(Genres resolver) {
+        this.resolver = resolver;
+    }
+
+    /**
+     * Translates the constraint and orderings of a query.
+     *
+     * @param genres resolves genre names to TMDB ids
+     */
+    static DiscoverQuery translate(ExternalQuery query, Genres genres) throws RepositoryException {
+        DiscoverQuery discover = new DiscoverQuery(genres);
+        List<Constraint> conjuncts = new ArrayList<Constraint>();
+        addConjuncts(query.getConstraint(), conjuncts);
+        for (Constraint constraint : conjuncts) {
+            if (!(constraint instanceof Or)) {
+                discover.pushDown(constraint);
+            }
+        }
+        if (!discover.genres.isEmpty()) {
+            discover.parameters.put("with_genres", StringUtils.join(discover.genres, ","));
+        }
+        // Alternative genres can only be pushed down when all the genres are alternatives
+        for (Constraint constraint : conjuncts) {
+            if (constraint instanceof Or) {
+                discover.pushDown(constraint);
+            }
+        }
+        discover.parameters.put("sort_by", getSort(query.getOrderings()));
+        return discover;
+    }
+
+    /**
+     * @return the text to search for in titles, or <code>null</code> to discover movies
+     */
+    String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return the discover parameters, sorted by name
+     */
+    SortedMap<String, String> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return whether no movie can match, like when a genre does not exist
+     */
+    boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * @return whether the discover is the default list of popular movies
+     */
+    boolean isPopular() {
+        return title == null && parameters.size() == 1 && DEFAULT_SORT.equals(parameters.get("sort_by"));
+    }
+
+    /**
+     * @return whether some returned movies may not match the query, and must be checked with {@link #matches(Movie)}
+     */
+    boolean isFiltered() {
+        return !getResidualConstraints().isEmpty();
+    }
+
+    /**
+     * @return whether a movie of the results matches the constraints that were not pushed down, or <code>null</code>
+     * if it cannot be told from the fields of the movie, which must then be checked again in full
+     */
+    Boolean matches(Movie movie) throws RepositoryException {
+        Boolean matches = Boolean.TRUE;
+        for (Constraint constraint : getResidualConstraints()) {
+            Boolean result = evaluate(constraint, movie);
+            if (result == Boolean.FALSE) {
+                return Boolean.FALSE;
+            } else if (result == null) {
+                matches = null;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Searches only take the text, every other constraint is checked. Discovers take the filters, and the constraints
+     * not covered exactly by them are checked.
+     */
+    private List<Constraint> getResidualConstraints() {
+        return title != null ? checks : uncovered;
+    }
+
+    private static void addConjuncts(Constraint constraint, List<Constraint> conjuncts) {
+        if (constraint instanceof And) {
+            addConjuncts(((And) constraint).getConstraint1(), conjuncts);
+            addConjuncts(((And) constraint).getConstraint2(), conjuncts);
+        } else if (constraint != null) {
+            conjuncts.add(constraint);
+        }
+    }
+
+    private void pushDown(Constraint constraint) throws RepositoryException {
+        if (constraint instanceof Or && pushDownGenres((Or) constraint)) {
+            // Searches ignore the genres
+            checks.add(constraint);
+            return;
+        }
+        if (constraint instanceof FullTextSearch && title == null) {
+            String text = getSearchText(getExpression((FullTextSearch) constraint));
+            if (!text.isEmpty()) {
+                // TMDB only searches the titles, the other fields are checked
+                title = text;
+            }
+        }
+        Comparison comparison = constraint instanceof Comparison ? (Comparison) constraint : null;
+        String property = comparison != null ? getProperty(comparison) : null;
+        if (property == null) {
+            checks.add(constraint);
+            uncovered.add(constraint);
+            return;
+        }
+        String operator = comparison.getOperator();
+        Value value = ((Literal) comparison.getOperand2()).getLiteralValue();
+        switch (property) {
+            case "jcr:title":
+                if (title == null && operator.equals(QueryObjectModelConstants.JCR_OPERATOR_EQUAL_TO)) {
+                    title = value.getString();
+                    return;
+                }
+                String pattern = value.getString();
+                if (title == null && operator.equals(QueryObjectModelConstants.JCR_OPERATOR_LIKE)
+                        && !getSearchText(pattern).isEmpty()) {
+                    title = getSearchText(pattern);
+                    if (!isContains(pattern)) {
+                        // TMDB only searches for words, the wildcards inside the pattern are checked
+                        checks.add(constraint);
+                    }
+                    return;
+                }
+                break;
+            case "j:tagList":
+                if (operator.equals(QueryObjectModelConstants.JCR_OPERATOR_EQUAL_TO)) {
+                    String genre = resolver.getId(value.getString());
+                    if (genre == null) {
+                        empty = true;
+                    } else {
+                        genres.add(genre);
+                    }
+                    // Searches ignore the genres
+                    checks.add(constraint);
+                    return;
+                }
+                break;
+            case "release_date":
+                long date = getDate(value);
+                String day = new DateTime(date, DateTimeZone.UTC).toString("yyyy-MM-dd");
+                // Release dates are days, and TMDB bounds are inclusive days
+                boolean midnight = new DateTime(date, DateTimeZone.UTC).getMillisOfDay() == 0;
+                if (pushDownRange("primary_release_date", operator, day, midnight)) {
+                    checks.add(constraint);
+                    return;
+                }
+                break;
+            case "vote_average":
+            case "vote_count":
+                if (pushDownRange(property, operator, value.getString(), true)) {
+                    checks.add(constraint);
+                    return;
+                }
+                break;
+            case "adult":
+                if (operator.equals(QueryObjectModelConstants.JCR_OPERATOR_EQUAL_TO)) {
+                    boolean adult = value.getBoolean();
+                    parameters.put("include_adult", Boolean.toString(adult));
+                    checks.add(constraint);
+                    if (adult) {
+                        // Adult movies are only included along with the others
+                        uncovered.add(constraint);
+                    }
+                    return;
+                }
+                break;
+            default:
+        }
+        checks.add(constraint);
+        uncovered.add(constraint);
+    }
+
+    /**
+     * Pushes down a range bound, keeping the narrowest bound when there are several.
+     *
+     * @param exact whether TMDB applies the bound exactly, otherwise the results are checked
+     */
+    private boolean pushDownRange(String parameter, String operator, String bound, boolean exact) {
+        boolean equal = operator.equals(QueryObjectModelConstants.JCR_OPERATOR_EQUAL_TO);
+        boolean strict = operator.equals(QueryObjectModelConstants.JCR_OPERATOR_GREATER_THAN)
+                || operator.equals(QueryObjectModelConstants.JCR_OPERATOR_LESS_THAN);
+        boolean lower = equal || operator.equals(QueryObjectModelConstants.JCR_OPERATOR_GREATER_THAN)
+                || operator.equals(QueryObjectModelConstants.JCR_OPERATOR_GREATER_THAN_OR_EQUAL_TO);
+        boolean upper = equal || operator.equals(QueryObjectModelConstants.JCR_OPERATOR_LESS_THAN)
+                || operator.equals(QueryObjectModelConstants.JCR_OPERATOR_LESS_THAN_OR_EQUAL_TO);
+        if (!lower && !upper) {
+            return false;
+        }
+        if (lower) {
+            parameters.merge(parameter + ".gte", bound, (a, b) -> compareBounds(a, b) >= 0 ? a : b);
+        }
+        if (upper) {
+            parameters.merge(parameter + ".lte", bound, (a, b) -> compareBounds(a, b) <= 0 ? a : b);
+        }
+        // TMDB bounds are inclusive
+        return exact && !strict;
+    }
+
+    private static int compareBounds(String a, String b) {
+        try {
+            return Double.compare(Double.parseDouble(a), Double.parseDouble(b));
+        } catch (NumberFormatException e) {
+            // Days compare as strings
+            return a.compareTo(b);
+        }
+    }
+
+    /**
+     * Pushes down alternative genres, when there is no other genre constraint.
+     */
+    private boolean pushDownGenres(Or or) throws RepositoryException {
+        if (parameters.containsKey("with_genres")) {
+            return false;
+        }
+        List<Constraint> alternatives = new ArrayList<Constraint>();
+        addAlternatives(or, alternatives);
+        List<String> ids = new ArrayList<String>();
+        for (Constraint alternative : alternatives) {
+            if (!(alternative instanceof Comparison) || !"j:tagList".equals(getProperty((Comparison) alternative))
+                    || !((Comparison) alternative).getOperator().equals(QueryObjectModelConstants.JCR_OPERATOR_EQUAL_TO)) {
+                return false;
+            }
+            String id = resolver.getId(((Literal) ((Comparison) alternative).getOperand2()).getLiteralValue().getString());
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        if (ids.isEmpty()) {
+            empty = true;
+        } else {
+            parameters.put("with_genres", StringUtils.join(ids, "|"));
+        }
+        return true;
+    }
+
+    private static void addAlternatives(Constraint constraint, List<Constraint> alternatives) {
+        if (constraint instanceof Or) {
+            addAlternatives(((Or) constraint).getConstraint1(), alternatives);
+            addAlternatives(((Or) constraint).getConstraint2(), alternatives);
+        } else {
+            alternatives.add(constraint);
+        }
+    }
+
+    /**
+     * @return the property compared to a literal, or <code>null</code> for any other comparison
+     */
+    private static String getProperty(Comparison comparison) {
+        if (comparison.getOperand1() instanceof PropertyValue && comparison.getOperand2() instanceof Literal) {
+            return ((PropertyValue) comparison.getOperand1()).getPropertyName();
+        }
+        return null;
+    }
+
+    /**
+     * @return the property of a comparison to a literal, also through a lower or upper case, or <code>null</code>
+     */
+    private static String getComparedProperty(Comparison comparison) {
+        DynamicOperand operand = comparison.getOperand1();
+        if (operand instanceof LowerCase) {
+            operand = ((LowerCase) operand).getOperand();
+        } else if (operand instanceof UpperCase) {
+            operand = ((UpperCase) operand).getOperand();
+        }
+        if (operand instanceof PropertyValue && comparison.getOperand2() instanceof Literal) {
+            return ((PropertyValue) operand).getPropertyName();
+        }
+        return null;
+    }
+
+    /**
+     * @return the words of a <code>LIKE</code> pattern or a full text expression, without wildcards nor operators
+     */
+    private static String getSearchText(String text) {
+        return StringUtils.join(StringUtils.split(text, " \t\r\n%_\"*?()\\"), ' ');
+    }
+
+    /**
+     * @return whether the only wildcards of a <code>LIKE</code> pattern are at its ends, like <code>%star wars%</code>,
+     * so that searching for its words is enough
+     */
+    private static boolean isContains(String pattern) {
+        return StringUtils.containsNone(StringUtils.strip(pattern, "%"), "%_\\");
+    }
+
+    private static String getSort(Ordering[] orderings) throws RepositoryException {
+        if (orderings == null || orderings.length == 0) {
+            return DEFAULT_SORT;
+        }
+        if (orderings.length > 1) {
+            logger.debug("TMDB only sorts by one field, ignoring {} orderings", orderings.length - 1);
+        }
+        DynamicOperand operand = orderings[0].getOperand();
+        String sort = operand instanceof PropertyValue ? SORTS.get(((PropertyValue) operand).getPropertyName()) : null;
+        if (sort == null) {
+            logger.debug("Unsupported ordering {}, sorting by popularity", operand);
+            return DEFAULT_SORT;
+        }
+        return sort + (QueryObjectModelConstants.JCR_ORDER_ASCENDING.equals(orderings[0].getOrder()) ? ".asc" : ".desc");
+    }
+
+    private static long getDate(Value value) throws RepositoryException {
+        if (value.getType() == PropertyType.DATE) {
+            return value.getDate().getTimeInMillis();
+        }
+        try {
+            return new DateTime(value.getString(), DateTimeZone.UTC).getMillis();
+        } catch (IllegalArgumentException e) {
+            throw new RepositoryException("Invalid date " + value.getString());
+        }
+    }
+
+    /**
+     * @return whether a movie matches a constraint, or <code>null</code> if it cannot be told from the fields of the
+     * movie
+     */
+    private Boolean evaluate(Constraint constraint, Movie movie) throws RepositoryException {
+        if (constraint instanceof And) {
+            Boolean a = evaluate(((And) constraint).getConstraint1(), movie);
+            Boolean b = evaluate(((And) constraint).getConstraint2(), movie);
+            return a == Boolean.FALSE || b == Boolean.FALSE ? Boolean.FALSE : a == null || b == null ? null : Boolean.TRUE;
+        } else if (constraint instanceof Or) {
+            Boolean a = evaluate(((Or) constraint).getConstraint1(), movie);
+            Boolean b = evaluate(((Or) constraint).getConstraint2(), movie);
+            return a == Boolean.TRUE || b == Boolean.TRUE ? Boolean.TRUE : a == null || b == null ? null : Boolean.FALSE;
+        } else if (constraint instanceof Not) {
+            Boolean a = evaluate(((Not) constraint).getConstraint(), movie);
+            return a == null ? null : !a;
+        } else if (constraint instanceof PropertyExistence) {
+            String property = ((PropertyExistence) constraint).getPropertyName();
+            if (property.equals("j:tagList")) {
+                return !movie.getGenreIds().isEmpty();
+            }
+            return isKnown(property, movie) ? getValue(movie, property) != null : null;
+        } else if (constraint instanceof FullTextSearch) {
+            return search((FullTextSearch) constraint, movie);
+        } else if (constraint instanceof Comparison) {
+            Comparison comparison = (Comparison) constraint;
+            String property = getComparedProperty(comparison);
+            Value value = property != null ? ((Literal) comparison.getOperand2()).getLiteralValue() : null;
+            if (property == null) {
+                return null;
+            } else if (property.equals("j:tagList")) {
+                return comparison.getOperand1() instanceof PropertyValue ? compareGenres(movie, comparison.getOperator(), value) : null;
+            } else if (!isKnown(property, movie)) {
+                return null;
+            }
+            Object actual = getValue(movie, property);
+            if (actual instanceof String && comparison.getOperand1() instanceof LowerCase) {
+                actual = ((String) actual).toLowerCase(Locale.ROOT);
+            } else if (actual instanceof String && comparison.getOperand1() instanceof UpperCase) {
+                actual = ((String) actual).toUpperCase(Locale.ROOT);
+            }
+            return compare(actual, property.equals("release_date"), comparison.getOperator(), value);
+        }
+        return null;
+    }
+
+    /**
+     * Compares the genres of a movie to a genre name. As for any multi-valued property, the comparison matches if one
+     * of the genres matches.
+     */
+    private Boolean compareGenres(Movie movie, String operator, Value value) throws RepositoryException {
+        String id = resolver.getId(value.getString());
+        switch (operator) {
+            case QueryObjectModelConstants.JCR_OPERATOR_EQUAL_TO:
+                return id != null && movie.getGenreIds().contains(id);
+            case QueryObjectModelConstants.JCR_OPERATOR_NOT_EQUAL_TO:
+                for (String genre : movie.getGenreIds()) {
+                    if (!genre.equals(id)) {
+                        return Boolean.TRUE;
+                    }
+                }
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return whether all the words of a full text search are in the titles or the overview of a movie, or
+     * <code>null</code> for the expressions with alternatives or excluded words
+     */
+    private static Boolean search(FullTextSearch constraint, Movie movie) throws RepositoryException {
+        String expression = getExpression(constraint);
+        String[] words = StringUtils.split(getSearchText(expression).toLowerCase(Locale.ROOT));
+        if (constraint.getPropertyName() != null || expression.startsWith("-") || expression.contains(" -")
+                || ArrayUtils.contains(words, "or")) {
+            return null;
+        }
+        String text = StringUtils.join(new String[]{movie.getTitle(), movie.getOriginalTitle(), movie.getOverview()}, ' ')
+                .toLowerCase(Locale.ROOT);
+        for (String word : words) {
+            if (!text.contains(word)) {
+                return Boolean.FALSE;
+            }
+        }
+        return Boolean.TRUE;
+    }
+
+    private static String getExpression(FullTextSearch constraint) throws RepositoryException {
+        StaticOperand operand = constraint.getFullTextSearchExpression();
+        return operand instanceof Literal ? ((Literal) operand).getLiteralValue().getString() : "";
+    }
+
+    /**
+     * @return whether a property can be read on a movie, the fields only returned with the details of a movie are
+     * unknown on a search or discover result
+     */
+    private static boolean isKnown(String property, Movie movie) {
+        switch (property) {
+            case "jcr:title":
+            case "original_title":
+            case "overview":
+            case "poster_path":
+            case "release_date":
+            case "vote_average":
+            case "vote_count":
+            case "popularity":
+            case "adult":
+                return true;
+            case "tagline":
+            case "homepage":
+            case "status":
+            case "imdb_id":
+            case "runtime":
+            case "budget":
+            case "revenue":
+                return movie.isFull();
+            default:
+                return false;
+        }
+    }
+
+    private static Object getValue(Movie movie, String property) {
+        switch (property) {
+            case "jcr:title":
+                return movie.getTitle();
+            case "original_title":
+                return movie.getOriginalTitle();
+            case "overview":
+                return movie.getOverview();
+            case "tagline":
+                return movie.getTagline();
+            case "poster_path":
+                return movie.getPosterPath();
+            case "homepage":
+                return movie.getHomepage();
+            case "status":
+                return movie.getStatus();
+            case "imdb_id":
+                return movie.getImdbId();
+            case "release_date":
+                return StringUtils.isEmpty(movie.getReleaseDate()) ? null
+                        : new DateTime(movie.getReleaseDate(), DateTimeZone.UTC).getMillis();
+            case "runtime":
+                return movie.getRuntime();
+            case "budget":
+                return movie.getBudget();
+            case "revenue":
+                return movie.getRevenue();
+            case "vote_average":
+                return movie.getVoteAverage();
+            case "vote_count":
+                return movie.getVoteCount();
+            case "popularity":
+                return movie.getPopularity();
+            case "adult":
+                return movie.getAdult();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @param date whether the value is a date, compared as milliseconds
+     */
+    private static Boolean compare(Object actual, boolean date, String operator, Value value) throws RepositoryException {
+        if (actual == null) {
+            // A missing property matches no comparison
+            return Boolean.FALSE;
+        }
+        int comparison;
+        if (date) {
+            comparison = Long.compare((Long) actual, getDate(value));
+        } else if (actual instanceof Long) {
+            comparison = Long.compare((Long) actual, value.getLong());
+        } else if (actual instanceof Double) {
+            comparison = Double.compare((Double) actual, value.getDouble());
+        } else if (actual instanceof Boolean) {
+            comparison = ((Boolean) actual).compareTo(value.getBoolean());
+        } else if (operator.equals(QueryObjectModelConstants.JCR_OPERATOR_LIKE)) {
+            return like(actual.toString(), value.getString());
+        } else {
+            comparison = actual.toString().compareTo(value.getString());
+        }
+        switch (operator) {
+            case QueryObjectModelConstants.JCR_OPERATOR_EQUAL_TO:
+                return comparison == 0;
+            case QueryObjectModelConstants.JCR_OPERATOR_NOT_EQUAL_TO:
+                return comparison != 0;
+            case QueryObjectModelConstants.JCR_OPERATOR_LESS_THAN:
+                return comparison < 0;
+            case QueryObjectModelConstants.JCR_OPERATOR_LESS_THAN_OR_EQUAL_TO:
+                return comparison <= 0;
+            case QueryObjectModelConstants.JCR_OPERATOR_GREATER_THAN:
+                return comparison > 0;
+            case QueryObjectModelConstants.JCR_OPERATOR_GREATER_THAN_OR_EQUAL_TO:
+                return comparison >= 0;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Matches a value with a <code>LIKE</code> pattern, where <code>%</code> is any text, <code>_</code> any character,
+     * and <code>\</code> escapes the next character.
+     */
+    static boolean like(String value, String pattern) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '%') {
+                regex.append(".*");
+            } else if (c == '_') {
+                regex.append('.');
+            } else {
+                if (c == '\\' && i + 1 < pattern.length()) {
+                    c = pattern.charAt(++i);
+                }
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL).matcher(value).matches();
+    }
+}
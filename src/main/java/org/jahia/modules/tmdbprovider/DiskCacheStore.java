@@ -0,0 +1,460 @@
+package org.jahia.modules.tmdbprovider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file store used as the second tier of the TMDB cache, so that the cache survives restarts.
+ * <p>
+ * Every record is written at the end of the file as <code>length, crc32, payload</code>, where the payload holds the
+ * write time, the key and the serialized value, or no value for a removal. The offsets of the live records are kept in
+ * memory. When the file is opened, records are read again until the first one that is truncated or does not match its
+ * checksum, which is where the file is cut.
+ * <p>
+ * Overwritten and removed records stay in the file until it is compacted, which copies the live records into a new
+ * file. Compaction happens when the dead records take more than a given ratio of the file, or when the file is
+ * bigger than its maximum size, in which case the oldest records are dropped. It runs in the thread that wrote the last
+ * record, after the write : records are copied while reads go on, and the new file only replaces the current one
+ * under the write lock, along with the records written in the meantime.
+ */
+final class DiskCacheStore implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskCacheStore.class);
+
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+    private static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+
+    private final Path file;
+    private final long maxSize;
+    private final long timeToLive;
+    private final double compactionRatio;
+
+    private final Map<String, Record> index = new ConcurrentHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    private FileChannel channel;
+    private long size;
+    private long liveSize;
+    // Incremented when the store is cleared, which cancels a running compaction
+    private long generation;
+
+    private static final class Record {
+        private final long offset;
+        private final int length;
+        private final long writtenAt;
+
+        private Record(long offset, int length, long writtenAt) {
+            this.offset = offset;
+            this.length = length;
+            this.writtenAt = writtenAt;
+        }
+    }
+
+    /**
+     * A value read from the store, with the time it was written at.
+     */
+    static final class Entry {
+        private final Object value;
+        private final long writtenAt;
+
+        private Entry(Object value, long writtenAt) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+        }
+
+        Object getValue() {
+            return value;
+        }
+
+        long getWrittenAt() {
+            return writtenAt;
+        }
+    }
+
+    /**
+     * @param file            the store file, created if needed
+     * @param maxSize         the maximum size of the file in bytes
+     * @param timeToLive      the time in milliseconds after which a record is no longer read, 0 for no limit
+     * @param compactionRatio the part of dead records in the file above which it is compacted, between 0 and 1
+     */
+    DiskCacheStore(Path file, long maxSize, long timeToLive, double compactionRatio) throws IOException {
+        this.file = file;
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive;
+        this.compactionRatio = compactionRatio;
+        Files.createDirectories(file.getParent());
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        load();
+    }
+
+    /**
+     * @return the entry stored under <code>key</code>, or <code>null</code> if there is none, it has expired or it
+     * cannot be read
+     */
+    Entry get(String key) {
+        lock.readLock().lock();
+        Record record = index.get(key);
+        try {
+            if (record == null) {
+                return null;
+            }
+            if (isExpired(record)) {
+                // Dropped by the next compaction
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(record.length);
+            read(buffer, record.offset);
+            buffer.flip();
+            DataInputStream payload = readPayload(buffer);
+            if (payload == null) {
+                logger.warn("Corrupted record for {} in {}", key, file);
+                index.remove(key, record);
+                return null;
+            }
+            long writtenAt = payload.readLong();
+            payload.readUTF();
+            int valueLength = payload.readInt();
+            return valueLength < 0 ? null : new Entry(deserialize(payload), writtenAt);
+        } catch (IOException | ClassNotFoundException e) {
+            logger.warn("Cannot read {} from {}: {}", key, file, e.getMessage());
+            index.remove(key, record);
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return whether a record is stored under <code>key</code>, even if it has expired
+     */
+    boolean contains(String key) {
+        return index.containsKey(key);
+    }
+
+    void put(String key, Serializable value) {
+        try {
+            write(key, serialize(value));
+        } catch (IOException e) {
+            logger.warn("Cannot write {} to {}: {}", key, file, e.getMessage());
+        }
+    }
+
+    void remove(String key) {
+        if (index.containsKey(key)) {
+            try {
+                write(key, null);
+            } catch (IOException e) {
+                logger.warn("Cannot remove {} from {}: {}", key, file, e.getMessage());
+            }
+        }
+    }
+
+    void removeAll() {
+        lock.writeLock().lock();
+        try {
+            channel.truncate(0);
+            index.clear();
+            size = 0;
+            liveSize = 0;
+            generation++;
+        } catch (IOException e) {
+            logger.warn("Cannot clear {}: {}", file, e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of live records
+     */
+    int getSize() {
+        return index.size();
+    }
+
+    /**
+     * @return the size of the file in bytes
+     */
+    long getFileSize() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            channel.force(true);
+            channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void write(String key, byte[] value) throws IOException {
+        if (value != null && value.length > MAX_RECORD_SIZE) {
+            logger.debug("Not storing {}, {} bytes", key, value.length);
+            return;
+        }
+        long now = System.currentTimeMillis();
+        ByteBuffer record = encode(key, value, now);
+        boolean compact;
+        lock.writeLock().lock();
+        try {
+            long offset = size;
+            while (record.hasRemaining()) {
+                channel.write(record, offset + record.position());
+            }
+            size += record.limit();
+            Record previous = value != null ? index.put(key, new Record(offset, record.limit(), now)) : index.remove(key);
+            if (previous != null) {
+                liveSize -= previous.length;
+            }
+            if (value != null) {
+                liveSize += record.limit();
+            }
+            compact = size > maxSize || (size > MIN_COMPACTION_SIZE && size - liveSize > size * compactionRatio);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (compact && compacting.compareAndSet(false, true)) {
+            try {
+                compact();
+            } finally {
+                compacting.set(false);
+            }
+        }
+    }
+
+    /**
+     * Copies the live records into a new file, dropping the oldest ones if they do not fit in three quarters of the
+     * maximum size. The records are copied under the read lock, and the write lock is only held to add the records
+     * written during the copy and to replace the file.
+     */
+    private void compact() throws IOException {
+        long start = System.currentTimeMillis();
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        // The copy of every record, by record of the current file
+        Map<Record, Record> copies = new IdentityHashMap<>();
+        long copiedSize;
+        long copiedGeneration;
+        long newSize = 0;
+        int count;
+        try (FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            lock.readLock().lock();
+            try {
+                copiedSize = size;
+                copiedGeneration = generation;
+                List<Record> records = new ArrayList<>(index.values());
+                count = records.size();
+                records.sort(Comparator.comparingLong(record -> -record.writtenAt));
+                for (Record record : records) {
+                    if (isExpired(record)) {
+                        continue;
+                    }
+                    if (newSize + record.length > maxSize * 3 / 4) {
+                        break;
+                    }
+                    copies.put(record, new Record(newSize, record.length, record.writtenAt));
+                    newSize = copy(record, target, newSize);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            lock.writeLock().lock();
+            try {
+                if (generation != copiedGeneration) {
+                    // Cleared during the copy
+                    Files.deleteIfExists(compacted);
+                    return;
+                }
+                Map<String, Record> newIndex = new HashMap<>();
+                for (Map.Entry<String, Record> entry : index.entrySet()) {
+                    Record record = entry.getValue();
+                    Record copy = copies.get(record);
+                    if (copy == null && record.offset >= copiedSize) {
+                        // Written during the copy
+                        copy = new Record(newSize, record.length, record.writtenAt);
+                        newSize = copy(record, target, newSize);
+                    }
+                    if (copy != null) {
+                        newIndex.put(entry.getKey(), copy);
+                    }
+                }
+                target.force(true);
+                // The current channel keeps reading the replaced file until the new one is open, so that the store
+                // still matches its index if the file cannot be replaced or opened
+                Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                FileChannel replaced = channel;
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                try {
+                    replaced.close();
+                } catch (IOException e) {
+                    logger.debug("Cannot close the replaced file {}: {}", file, e.getMessage());
+                }
+
+                logger.info("Compacted {} from {} to {} bytes, {} of {} records kept in {} ms", file, size, newSize, newIndex.size(), count,
+                        System.currentTimeMillis() - start);
+                index.clear();
+                index.putAll(newIndex);
+                size = newSize;
+                liveSize = newSize;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Copies a record of the current file at <code>offset</code> in <code>target</code>.
+     *
+     * @return the offset following the copied record
+     */
+    private long copy(Record record, FileChannel target, long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(record.length);
+        read(buffer, record.offset);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            target.write(buffer, offset + buffer.position());
+        }
+        return offset + record.length;
+    }
+
+    /**
+     * Reads the current file at <code>offset</code> until the buffer is full, as a single read may return less bytes.
+     */
+    private void read(ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) >= 0) {
+            // Read until the buffer is full or the end of the file
+        }
+    }
+
+    /**
+     * Rebuilds the index from the file, and cuts it after the last valid record.
+     */
+    private void load() throws IOException {
+        long fileSize = channel.size();
+        long offset = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            DataInputStream data = new DataInputStream(in);
+            while (offset + HEADER_SIZE <= fileSize) {
+                int length = data.readInt();
+                int crc = data.readInt();
+                if (length < 0 || length > MAX_RECORD_SIZE || offset + HEADER_SIZE + length > fileSize) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                data.readFully(payload);
+                if (crc != checksum(payload)) {
+                    break;
+                }
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                long writtenAt = record.readLong();
+                String key = record.readUTF();
+                int valueLength = record.readInt();
+                Record previous = valueLength >= 0 ? index.put(key, new Record(offset, HEADER_SIZE + length, writtenAt)) : index.remove(key);
+                if (previous != null) {
+                    liveSize -= previous.length;
+                }
+                if (valueLength >= 0) {
+                    liveSize += HEADER_SIZE + length;
+                }
+                offset += HEADER_SIZE + length;
+            }
+        } catch (EOFException e) {
+            // Truncated record, ignored
+        }
+        if (offset < fileSize) {
+            logger.warn("Discarding {} bytes of invalid records at the end of {}", fileSize - offset, file);
+            channel.truncate(offset);
+        }
+        size = offset;
+        index.values().removeIf(this::isExpired);
+        logger.info("Loaded {} entries from {}", index.size(), file);
+    }
+
+    private boolean isExpired(Record record) {
+        return timeToLive > 0 && System.currentTimeMillis() - record.writtenAt > timeToLive;
+    }
+
+    private static ByteBuffer encode(String key, byte[] value, long writtenAt) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + (value != null ? value.length : 0));
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeLong(writtenAt);
+        payload.writeUTF(key);
+        payload.writeInt(value != null ? value.length : -1);
+        if (value != null) {
+            payload.write(value);
+        }
+        payload.flush();
+        byte[] data = bytes.toByteArray();
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + data.length);
+        record.putInt(data.length).putInt(checksum(data)).put(data);
+        record.flip();
+        return record;
+    }
+
+    /**
+     * @return the payload of a record, or <code>null</code> if it does not match its checksum
+     */
+    private static DataInputStream readPayload(ByteBuffer record) {
+        int length = record.getInt();
+        int crc = record.getInt();
+        if (length != record.remaining()) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        record.get(payload);
+        return crc == checksum(payload) ? new DataInputStream(new ByteArrayInputStream(payload)) : null;
+    }
+
+    private static int checksum(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] serialize(Serializable value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(InputStream in) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream objects = new ObjectInputStream(in) {
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                // Records are classes of this bundle, which the default resolution may not see
+                try {
+                    return Class.forName(desc.getName(), false, DiskCacheStore.class.getClassLoader());
+                } catch (ClassNotFoundException e) {
+                    return super.resolveClass(desc);
+                }
+            }
+        }) {
+            return objects.readObject();
+        }
+    }
+}
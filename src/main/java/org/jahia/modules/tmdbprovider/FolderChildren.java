@@ -0,0 +1,84 @@
+package org.jahia.modules.tmdbprovider;
+
+import org.joda.time.DateTime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable names of the children of the root, the year folders and the month folders, which only depend on the
+ * current month. Years go from {@link #FIRST_YEAR} to the current year, and the current year only holds the months
+ * before the current one.
+ */
+final class FolderChildren {
+
+    static final int FIRST_YEAR = 1900;
+
+    private static final List<String> ALL_MONTHS;
+
+    static {
+        List<String> months = new ArrayList<>(12);
+        for (int i = 1; i <= 12; i++) {
+            months.add(i < 10 ? "0" + i : Integer.toString(i));
+        }
+        ALL_MONTHS = Collections.unmodifiableList(months);
+    }
+
+    private final List<String> root;
+    private final List<String> years;
+    private final List<String> currentYearMonths;
+    private final int currentYear;
+    private final String currentYearName;
+    private final long validUntil;
+
+    /**
+     * @param now the time at which the children are computed, they are valid until the end of its month
+     */
+    FolderChildren(List<String> root, DateTime now) {
+        this.root = Collections.unmodifiableList(new ArrayList<>(root));
+        this.currentYear = now.getYear();
+        this.currentYearName = Integer.toString(currentYear);
+        List<String> years = new ArrayList<>(currentYear - FIRST_YEAR + 1);
+        for (int i = FIRST_YEAR; i <= currentYear; i++) {
+            years.add(Integer.toString(i));
+        }
+        this.years = Collections.unmodifiableList(years);
+        this.currentYearMonths = ALL_MONTHS.subList(0, now.getMonthOfYear() - 1);
+        this.validUntil = now.plusMonths(1).withDayOfMonth(1).withTimeAtStartOfDay().getMillis();
+    }
+
+    /**
+     * @return whether the current month has changed since the children were computed
+     */
+    boolean isExpired() {
+        return System.currentTimeMillis() >= validUntil;
+    }
+
+    List<String> getRoot() {
+        return root;
+    }
+
+    List<String> getYears() {
+        return years;
+    }
+
+    List<String> getMonths(String year) {
+        return year.equals(currentYearName) ? currentYearMonths : ALL_MONTHS;
+    }
+
+    /**
+     * @return whether the year folder is listed under the movies folder
+     */
+    boolean hasYear(String year) {
+        int value = Integer.parseInt(year);
+        return value >= FIRST_YEAR && value <= currentYear;
+    }
+
+    /**
+     * @return whether the month folder is listed under its year folder
+     */
+    boolean hasMonth(String year, String month) {
+        return hasYear(year) && getMonths(year).contains(month);
+    }
+}
@@ -0,0 +1,52 @@
+package org.jahia.modules.tmdbprovider;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Immutable image configuration, built from the <code>images</code> part of <code>/3/configuration</code>.
+ */
+public final class ImageConfiguration implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String baseUrl;
+    private final List<String> posterSizes;
+    private final List<String> backdropSizes;
+    private final List<String> profileSizes;
+
+    public ImageConfiguration(String baseUrl, List<String> posterSizes, List<String> backdropSizes, List<String> profileSizes) {
+        this.baseUrl = baseUrl;
+        this.posterSizes = posterSizes;
+        this.backdropSizes = backdropSizes;
+        this.profileSizes = profileSizes;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public List<String> getPosterSizes() {
+        return posterSizes;
+    }
+
+    public List<String> getBackdropSizes() {
+        return backdropSizes;
+    }
+
+    public List<String> getProfileSizes() {
+        return profileSizes;
+    }
+
+    public String getPosterUrl(String posterPath) {
+        return baseUrl + posterSizes.get(1) + posterPath;
+    }
+
+    public String getBackdropUrl(String backdropPath) {
+        return baseUrl + backdropSizes.get(1) + backdropPath;
+    }
+
+    public String getProfileUrl(String profilePath, int sizeIndex) {
+        return baseUrl + profileSizes.get(sizeIndex) + profilePath;
+    }
+}
@@ -0,0 +1,67 @@
+package org.jahia.modules.tmdbprovider;
+
+import org.json.JSONException;
+
+import javax.jcr.RepositoryException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Keyed registry of the loads currently running against TMDB. All the callers asking for the same key while a load
+ * is running wait for the result of that load instead of sending their own request.
+ */
+final class InFlightRequests {
+
+    interface Loader<T> {
+        T load() throws RepositoryException, JSONException;
+    }
+
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Runs <code>loader</code>, unless a load is already running for <code>key</code>, in which case its result is
+     * returned instead.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T load(String key, Loader<T> loader) throws RepositoryException {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            return (T) await(key, running);
+        }
+        try {
+            T value = loader.load();
+            future.complete(value);
+            return value;
+        } catch (RepositoryException | JSONException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw asRepositoryException(e);
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * @return the number of loads currently running
+     */
+    int size() {
+        return inFlight.size();
+    }
+
+    private static Object await(String key, CompletableFuture<Object> future) throws RepositoryException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("Interrupted while waiting for " + key, e);
+        } catch (ExecutionException e) {
+            throw asRepositoryException(e.getCause());
+        }
+    }
+
+    private static RepositoryException asRepositoryException(Throwable e) {
+        return e instanceof RepositoryException ? (RepositoryException) e : new RepositoryException(e);
+    }
+}
@@ -0,0 +1,237 @@
+package org.jahia.modules.tmdbprovider;
+
+import org.jahia.modules.external.ExternalData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.RepositoryException;
+import java.util.*;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded queue of the nodes to send to the indexer, drained by a single thread.
+ * <p>
+ * Nodes are sent by batches, as soon as a batch is full or when its oldest node has waited for the maximum delay. A
+ * node that is already queued or being sent is not queued again. When the queue is full, new nodes are rejected
+ * rather than blocking the caller : they are not marked as indexed, so they are offered again on a later access.
+ */
+public final class IndexingQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexingQueue.class);
+
+    interface Sender {
+        /**
+         * @param nodes the nodes to send, keyed by their deduplication key
+         */
+        void send(Map<String, ExternalData> nodes) throws RepositoryException;
+    }
+
+    private static final class Pending {
+        private final ExternalData data;
+        private final long enqueuedAt;
+
+        private Pending(ExternalData data, long enqueuedAt) {
+            this.data = data;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private final Sender sender;
+    private final int capacity;
+    private final int batchSize;
+    private final long maxDelay;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final LinkedHashMap<String, Pending> pending = new LinkedHashMap<>();
+    private final Set<String> sending = new HashSet<>();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    private final LongAdder sentNodes = new LongAdder();
+    private final LongAdder sentBatches = new LongAdder();
+    private final LongAdder rejectedNodes = new LongAdder();
+    private final LongAdder failedNodes = new LongAdder();
+    private final LongAdder flushLatency = new LongAdder();
+    private volatile long lastFlushLatency;
+
+    /**
+     * @param sender        sends a batch to the indexer
+     * @param capacity      the maximum number of queued nodes
+     * @param batchSize     the maximum number of nodes in a batch
+     * @param maxDelay      the maximum time a node waits for its batch to be full
+     * @param threadFactory creates the thread draining the queue
+     */
+    IndexingQueue(Sender sender, int capacity, int batchSize, long maxDelay, TimeUnit unit, ThreadFactory threadFactory) {
+        this.sender = sender;
+        this.capacity = Math.max(capacity, 1);
+        this.batchSize = Math.max(batchSize, 1);
+        this.maxDelay = unit.toNanos(maxDelay);
+        this.worker = threadFactory.newThread(this::run);
+        this.worker.start();
+    }
+
+    /**
+     * Queues a node to be sent to the indexer.
+     *
+     * @param key  the key identifying the node, a node with the same key is only sent once
+     * @param data the node
+     * @return <code>false</code> if the node was rejected because the queue is full or stopped
+     */
+    public boolean offer(String key, ExternalData data) {
+        lock.lock();
+        try {
+            if (pending.containsKey(key) || sending.contains(key)) {
+                return true;
+            }
+            if (!running || pending.size() >= capacity) {
+                rejectedNodes.increment();
+                return false;
+            }
+            pending.put(key, new Pending(data, System.nanoTime()));
+            if (pending.size() == 1 || pending.size() >= batchSize) {
+                notEmpty.signal();
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sends the queued nodes and stops the queue.
+     */
+    void stop(long timeout, TimeUnit unit) {
+        lock.lock();
+        try {
+            running = false;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            worker.join(unit.toMillis(timeout));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            Map<String, Pending> batch;
+            lock.lock();
+            try {
+                while (pending.isEmpty() && running) {
+                    notEmpty.await();
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                long deadline = pending.values().iterator().next().enqueuedAt + maxDelay;
+                long remaining;
+                while (pending.size() < batchSize && running && (remaining = deadline - System.nanoTime()) > 0) {
+                    notEmpty.awaitNanos(remaining);
+                }
+                batch = drain();
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            flush(batch);
+        }
+    }
+
+    /**
+     * Moves the oldest nodes of the queue to a new batch. Must be called with the lock held.
+     */
+    private Map<String, Pending> drain() {
+        Map<String, Pending> batch = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, Pending>> it = pending.entrySet().iterator();
+        while (it.hasNext() && batch.size() < batchSize) {
+            Map.Entry<String, Pending> entry = it.next();
+            batch.put(entry.getKey(), entry.getValue());
+            sending.add(entry.getKey());
+            it.remove();
+        }
+        return batch;
+    }
+
+    private void flush(Map<String, Pending> batch) {
+        Map<String, ExternalData> nodes = new LinkedHashMap<>();
+        long oldest = Long.MAX_VALUE;
+        for (Map.Entry<String, Pending> entry : batch.entrySet()) {
+            nodes.put(entry.getKey(), entry.getValue().data);
+            oldest = Math.min(oldest, entry.getValue().enqueuedAt);
+        }
+        try {
+            sender.send(nodes);
+            sentNodes.add(nodes.size());
+        } catch (RepositoryException | RuntimeException e) {
+            failedNodes.add(nodes.size());
+            logger.warn("Cannot send {} nodes to the indexer: {}", nodes.size(), e.getMessage());
+        } finally {
+            lastFlushLatency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest);
+            flushLatency.add(lastFlushLatency);
+            sentBatches.increment();
+            lock.lock();
+            try {
+                sending.removeAll(batch.keySet());
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return the number of nodes waiting to be sent
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getSentNodes() {
+        return sentNodes.sum();
+    }
+
+    public long getSentBatches() {
+        return sentBatches.sum();
+    }
+
+    /**
+     * @return the number of nodes rejected because the queue was full
+     */
+    public long getRejectedNodes() {
+        return rejectedNodes.sum();
+    }
+
+    public long getFailedNodes() {
+        return failedNodes.sum();
+    }
+
+    /**
+     * @return the time in milliseconds between the queuing of the oldest node of the last batch and the end of its
+     * sending
+     */
+    public long getLastFlushLatency() {
+        return lastFlushLatency;
+    }
+
+    /**
+     * @return the average time in milliseconds between the queuing of the oldest node of a batch and the end of its
+     * sending
+     */
+    public long getAverageFlushLatency() {
+        long batches = sentBatches.sum();
+        return batches > 0 ? flushLatency.sum() / batches : 0;
+    }
+}
@@ -0,0 +1,499 @@
+package org.jahia.modules.tmdbprovider;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Immutable movie record, built once from a TMDB payload and stored as is in the cache.
+ * A movie coming from a discover or search result only holds the summary fields, see {@link #isFull()}. A full movie
+ * fetched with its translations can be localized with {@link #translate(String)}.
+ */
+public final class Movie implements Serializable {
+
+    private static final long serialVersionUID = 2L;
+
+    // Regions of the translations used for a language when none matches the requested region, when they are not
+    // named like the language itself (fr-FR, de-DE...)
+    private static final Map<String, String> PRIMARY_REGIONS = new HashMap<>();
+
+    static {
+        PRIMARY_REGIONS.put("en", "US");
+        PRIMARY_REGIONS.put("cs", "CZ");
+        PRIMARY_REGIONS.put("da", "DK");
+        PRIMARY_REGIONS.put("el", "GR");
+        PRIMARY_REGIONS.put("he", "IL");
+        PRIMARY_REGIONS.put("hi", "IN");
+        PRIMARY_REGIONS.put("ja", "JP");
+        PRIMARY_REGIONS.put("ko", "KR");
+        PRIMARY_REGIONS.put("sv", "SE");
+        PRIMARY_REGIONS.put("uk", "UA");
+        PRIMARY_REGIONS.put("vi", "VN");
+        PRIMARY_REGIONS.put("zh", "CN");
+    }
+
+    private final String id;
+    private final String title;
+    private final String originalTitle;
+    private final String overview;
+    private final String tagline;
+    private final String posterPath;
+    private final String backdropPath;
+    private final String homepage;
+    private final String releaseDate;
+    private final String status;
+    private final String imdbId;
+    private final Long runtime;
+    private final Long budget;
+    private final Long revenue;
+    private final Long voteCount;
+    private final Double voteAverage;
+    private final Double popularity;
+    private final Boolean adult;
+    private final List<String> genres;
+    private final List<String> genreIds;
+    private final List<String> keywords;
+    private final Map<String, Translation> translations;
+    private final boolean full;
+
+    private Movie(Builder builder) {
+        this.id = builder.id;
+        this.title = builder.title;
+        this.originalTitle = builder.originalTitle;
+        this.overview = builder.overview;
+        this.tagline = builder.tagline;
+        this.posterPath = builder.posterPath;
+        this.backdropPath = builder.backdropPath;
+        this.homepage = builder.homepage;
+        this.releaseDate = builder.releaseDate;
+        this.status = builder.status;
+        this.imdbId = builder.imdbId;
+        this.runtime = builder.runtime;
+        this.budget = builder.budget;
+        this.revenue = builder.revenue;
+        this.voteCount = builder.voteCount;
+        this.voteAverage = builder.voteAverage;
+        this.popularity = builder.popularity;
+        this.adult = builder.adult;
+        this.genres = builder.genres;
+        this.genreIds = builder.genreIds;
+        this.keywords = builder.keywords;
+        this.translations = builder.translations;
+        this.full = builder.full;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getOriginalTitle() {
+        return originalTitle;
+    }
+
+    public String getOverview() {
+        return overview;
+    }
+
+    public String getTagline() {
+        return tagline;
+    }
+
+    public String getPosterPath() {
+        return posterPath;
+    }
+
+    public String getBackdropPath() {
+        return backdropPath;
+    }
+
+    public String getHomepage() {
+        return homepage;
+    }
+
+    public String getReleaseDate() {
+        return releaseDate;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getImdbId() {
+        return imdbId;
+    }
+
+    public Long getRuntime() {
+        return runtime;
+    }
+
+    public Long getBudget() {
+        return budget;
+    }
+
+    public Long getRevenue() {
+        return revenue;
+    }
+
+    public Long getVoteCount() {
+        return voteCount;
+    }
+
+    public Double getVoteAverage() {
+        return voteAverage;
+    }
+
+    public Double getPopularity() {
+        return popularity;
+    }
+
+    public Boolean getAdult() {
+        return adult;
+    }
+
+    public List<String> getGenres() {
+        return genres;
+    }
+
+    /**
+     * @return the TMDB ids of the genres, which unlike their names are also in discover and search results
+     */
+    public List<String> getGenreIds() {
+        return genreIds;
+    }
+
+    public List<String> getKeywords() {
+        return keywords;
+    }
+
+    public boolean isFull() {
+        return full;
+    }
+
+    /**
+     * @return the translations of the movie, keyed by <code>language-COUNTRY</code>
+     */
+    public Map<String, Translation> getTranslations() {
+        return translations;
+    }
+
+    /**
+     * Returns this movie localized in <code>lang</code>. Translated fields that are empty fall back to the values of
+     * this movie, as TMDB does when a movie is queried with a <code>language</code> parameter.
+     * <p>
+     * When the movie has no translation for the region of <code>lang</code>, the translation of the primary region of
+     * the language is used (<code>fr-FR</code> for <code>fr_CA</code>), or else the first one in the order of the
+     * region codes, so that a language is always localized the same way.
+     *
+     * @param lang a Jahia language code, like <code>fr</code> or <code>fr_CA</code>
+     * @return the localized movie, without translations
+     */
+    public Movie translate(String lang) {
+        Builder builder = new Builder(this).translations(Collections.<String, Translation>emptyMap());
+        Translation translation = getTranslation(lang);
+        if (translation != null) {
+            if (StringUtils.isNotEmpty(translation.getTitle())) {
+                builder.title(translation.getTitle());
+            }
+            if (StringUtils.isNotEmpty(translation.getOverview())) {
+                builder.overview(translation.getOverview());
+            }
+            if (StringUtils.isNotEmpty(translation.getTagline())) {
+                builder.tagline(translation.getTagline());
+            }
+            if (StringUtils.isNotEmpty(translation.getHomepage())) {
+                builder.homepage(translation.getHomepage());
+            }
+        }
+        return builder.build();
+    }
+
+    private Translation getTranslation(String lang) {
+        String language = StringUtils.substringBefore(lang, "_");
+        String region = StringUtils.substringAfter(lang, "_");
+        Translation translation = translations.get(language + "-" + region);
+        if (translation == null) {
+            String primaryRegion = PRIMARY_REGIONS.get(language);
+            translation = translations.get(language + "-" + (primaryRegion != null ? primaryRegion : language.toUpperCase(Locale.ENGLISH)));
+        }
+        if (translation == null) {
+            String first = null;
+            for (String key : translations.keySet()) {
+                if (key.startsWith(language + "-") && (first == null || key.compareTo(first) < 0)) {
+                    first = key;
+                }
+            }
+            translation = first != null ? translations.get(first) : null;
+        }
+        return translation;
+    }
+
+    /**
+     * Returns the raw value of a TMDB field, as exposed by the lazy properties of a <code>jnt:movie</code> node.
+     *
+     * @param name TMDB field name
+     * @return the value as a string, or <code>null</code> if the movie has no value for this field
+     */
+    public String getProperty(String name) {
+        switch (name) {
+            case "title":
+                return title;
+            case "original_title":
+                return originalTitle;
+            case "overview":
+                return overview;
+            case "tagline":
+                return tagline;
+            case "poster_path":
+                return posterPath;
+            case "backdrop_path":
+                return backdropPath;
+            case "homepage":
+                return homepage;
+            case "release_date":
+                return releaseDate;
+            case "status":
+                return status;
+            case "imdb_id":
+                return imdbId;
+            case "runtime":
+                return toString(runtime);
+            case "budget":
+                return toString(budget);
+            case "revenue":
+                return toString(revenue);
+            case "vote_count":
+                return toString(voteCount);
+            case "vote_average":
+                return toString(voteAverage);
+            case "popularity":
+                return toString(popularity);
+            case "adult":
+                return toString(adult);
+            default:
+                return null;
+        }
+    }
+
+    private static String toString(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    public static final class Translation implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String title;
+        private final String overview;
+        private final String tagline;
+        private final String homepage;
+
+        public Translation(String title, String overview, String tagline, String homepage) {
+            this.title = title;
+            this.overview = overview;
+            this.tagline = tagline;
+            this.homepage = homepage;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getOverview() {
+            return overview;
+        }
+
+        public String getTagline() {
+            return tagline;
+        }
+
+        public String getHomepage() {
+            return homepage;
+        }
+    }
+
+    public static class Builder {
+        private String id;
+        private String title;
+        private String originalTitle;
+        private String overview;
+        private String tagline;
+        private String posterPath;
+        private String backdropPath;
+        private String homepage;
+        private String releaseDate;
+        private String status;
+        private String imdbId;
+        private Long runtime;
+        private Long budget;
+        private Long revenue;
+        private Long voteCount;
+        private Double voteAverage;
+        private Double popularity;
+        private Boolean adult;
+        private List<String> genres = Collections.emptyList();
+        private List<String> genreIds = Collections.emptyList();
+        private List<String> keywords = Collections.emptyList();
+        private Map<String, Translation> translations = Collections.emptyMap();
+        private boolean full;
+
+        public Builder() {
+        }
+
+        public Builder(Movie movie) {
+            this.id = movie.id;
+            this.title = movie.title;
+            this.originalTitle = movie.originalTitle;
+            this.overview = movie.overview;
+            this.tagline = movie.tagline;
+            this.posterPath = movie.posterPath;
+            this.backdropPath = movie.backdropPath;
+            this.homepage = movie.homepage;
+            this.releaseDate = movie.releaseDate;
+            this.status = movie.status;
+            this.imdbId = movie.imdbId;
+            this.runtime = movie.runtime;
+            this.budget = movie.budget;
+            this.revenue = movie.revenue;
+            this.voteCount = movie.voteCount;
+            this.voteAverage = movie.voteAverage;
+            this.popularity = movie.popularity;
+            this.adult = movie.adult;
+            this.genres = movie.genres;
+            this.genreIds = movie.genreIds;
+            this.keywords = movie.keywords;
+            this.translations = movie.translations;
+            this.full = movie.full;
+        }
+
+        public Builder id(String id) {
+            this.id = id;
+            return this;
+        }
+
+        public Builder title(String title) {
+            this.title = title;
+            return this;
+        }
+
+        public Builder originalTitle(String originalTitle) {
+            this.originalTitle = originalTitle;
+            return this;
+        }
+
+        public Builder overview(String overview) {
+            this.overview = overview;
+            return this;
+        }
+
+        public Builder tagline(String tagline) {
+            this.tagline = tagline;
+            return this;
+        }
+
+        public Builder posterPath(String posterPath) {
+            this.posterPath = posterPath;
+            return this;
+        }
+
+        public Builder backdropPath(String backdropPath) {
+            this.backdropPath = backdropPath;
+            return this;
+        }
+
+        public Builder homepage(String homepage) {
+            this.homepage = homepage;
+            return this;
+        }
+
+        public Builder releaseDate(String releaseDate) {
+            this.releaseDate = releaseDate;
+            return this;
+        }
+
+        public Builder status(String status) {
+            this.status = status;
+            return this;
+        }
+
+        public Builder imdbId(String imdbId) {
+            this.imdbId = imdbId;
+            return this;
+        }
+
+        public Builder runtime(Long runtime) {
+            this.runtime = runtime;
+            return this;
+        }
+
+        public Builder budget(Long budget) {
+            this.budget = budget;
+            return this;
+        }
+
+        public Builder revenue(Long revenue) {
+            this.revenue = revenue;
+            return this;
+        }
+
+        public Builder voteCount(Long voteCount) {
+            this.voteCount = voteCount;
+            return this;
+        }
+
+        public Builder voteAverage(Double voteAverage) {
+            this.voteAverage = voteAverage;
+            return this;
+        }
+
+        public Builder popularity(Double popularity) {
+            this.popularity = popularity;
+            return this;
+        }
+
+        public Builder adult(Boolean adult) {
+            this.adult = adult;
+            return this;
+        }
+
+        public Builder genres(List<String> genres) {
+            this.genres = copy(genres);
+            return this;
+        }
+
+        public Builder genreIds(List<String> genreIds) {
+            this.genreIds = copy(genreIds);
+            return this;
+        }
+
+        public Builder keywords(List<String> keywords) {
+            this.keywords = copy(keywords);
+            return this;
+        }
+
+        public Builder translations(Map<String, Translation> translations) {
+            this.translations = translations == null || translations.isEmpty()
+                    ? Collections.<String, Translation>emptyMap()
+                    : Collections.unmodifiableMap(new LinkedHashMap<>(translations));
+            return this;
+        }
+
+        public Builder full(boolean full) {
+            this.full = full;
+            return this;
+        }
+
+        public Movie build() {
+            return new Movie(this);
+        }
+
+        private static List<String> copy(List<String> values) {
+            return values == null || values.isEmpty()
+                    ? Collections.<String>emptyList() : Collections.unmodifiableList(new ArrayList<>(values));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.jahia.modules.tmdbprovider;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Immutable movie list record. Lists coming from the account lists only hold the summary fields, the ids of the
+ * movies are only available on lists built from a <code>/3/list/{id}</code> payload.
+ */
+public final class MovieList implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String id;
+    private final String name;
+    private final String description;
+    private final String posterPath;
+    private final List<String> movieIds;
+
+    public MovieList(String id, String name, String description, String posterPath, List<String> movieIds) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.posterPath = posterPath;
+        this.movieIds = movieIds;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getPosterPath() {
+        return posterPath;
+    }
+
+    /**
+     * @return the ids of the movies in the list, or <code>null</code> for a list summary
+     */
+    public List<String> getMovieIds() {
+        return movieIds;
+    }
+}
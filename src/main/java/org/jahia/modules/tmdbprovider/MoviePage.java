@@ -0,0 +1,40 @@
+package org.jahia.modules.tmdbprovider;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Immutable page of movie summaries, built from a paginated discover or search payload.
+ */
+public final class MoviePage implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int page;
+    private final int totalPages;
+    private final int totalResults;
+    private final List<Movie> results;
+
+    public MoviePage(int page, int totalPages, int totalResults, List<Movie> results) {
+        this.page = page;
+        this.totalPages = totalPages;
+        this.totalResults = totalResults;
+        this.results = results;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getTotalPages() {
+        return totalPages;
+    }
+
+    public int getTotalResults() {
+        return totalResults;
+    }
+
+    public List<Movie> getResults() {
+        return results;
+    }
+}
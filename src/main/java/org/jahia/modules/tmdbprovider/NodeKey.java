@@ -0,0 +1,344 @@
+package org.jahia.modules.tmdbprovider;
+
+/**
+ * Parsed path or identifier of a node of the provider, following the grammar of the tree :
+ * <pre>
+ * /                                   root
+ * /movies, /lists, /persons           movies-rootfolder, lists-rootfolder, persons-rootfolder
+ * /movies/{yyyy}                      movies-folder-{yyyy}
+ * /movies/{yyyy}/{MM}                 movies-folder-{yyyy}/{MM}
+ * /movies/{yyyy}/{MM}/{movie}         movie-{movie}
+ * /movies/{yyyy}/{MM}/{movie}/{name}  moviecredits-{movie}-{name}
+ * /lists/{list}                       lists-{list}
+ * /lists/{list}/{movie}               movieref-{list}-{movie}
+ * /persons/{person}                   person-{person}
+ * </pre>
+ * Movie and person ids are numbers, list ids are made of lower case letters and digits. Paths and identifiers are
+ * parsed in a single pass, without splitting them or matching regular expressions, since every access to a node goes
+ * through here. Parsing still allocates the key and copies its ids out of the string, and the identifier and path of a
+ * key are built again each time they are asked for.
+ */
+final class NodeKey {
+
+    enum Kind {
+        ROOT, FOLDER, YEAR, MONTH, MOVIE, CREDIT, LIST, MOVIE_REF, PERSON
+    }
+
+    static final String MOVIES = "movies";
+    static final String LISTS = "lists";
+    static final String PERSONS = "persons";
+
+    static final NodeKey ROOT = new NodeKey(Kind.ROOT, null, null, null, null, null);
+    private static final NodeKey MOVIES_FOLDER = new NodeKey(Kind.FOLDER, MOVIES, null, null, null, null);
+    private static final NodeKey LISTS_FOLDER = new NodeKey(Kind.FOLDER, LISTS, null, null, null, null);
+    private static final NodeKey PERSONS_FOLDER = new NodeKey(Kind.FOLDER, PERSONS, null, null, null, null);
+
+    private static final String ROOT_FOLDER_SUFFIX = "-rootfolder";
+    private static final String FOLDER_PREFIX = "movies-folder-";
+    private static final String MOVIE_PREFIX = "movie-";
+    private static final String CREDIT_PREFIX = "moviecredits-";
+    private static final String LIST_PREFIX = "lists-";
+    private static final String MOVIE_REF_PREFIX = "movieref-";
+    private static final String PERSON_PREFIX = "person-";
+
+    private final Kind kind;
+    private final String root;
+    private final String year;
+    private final String month;
+    // The movie, list or person id
+    private final String id;
+    // The credit name, or the movie id of a movie reference
+    private final String child;
+
+    private NodeKey(Kind kind, String root, String year, String month, String id, String child) {
+        this.kind = kind;
+        this.root = root;
+        this.year = year;
+        this.month = month;
+        this.id = id;
+        this.child = child;
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the root folder of the node, <code>null</code> for the root
+     */
+    String getRoot() {
+        return root;
+    }
+
+    /**
+     * @return the year of a year or month folder, or of a movie or credit parsed from a path
+     */
+    String getYear() {
+        return year;
+    }
+
+    /**
+     * @return the month of a month folder, or of a movie or credit parsed from a path
+     */
+    String getMonth() {
+        return month;
+    }
+
+    /**
+     * @return the id of a movie, or of the movie of a credit or movie reference
+     */
+    String getMovieId() {
+        return kind == Kind.MOVIE_REF ? child : kind == Kind.MOVIE || kind == Kind.CREDIT ? id : null;
+    }
+
+    /**
+     * @return the id of a list, or of the list of a movie reference
+     */
+    String getListId() {
+        return kind == Kind.LIST || kind == Kind.MOVIE_REF ? id : null;
+    }
+
+    String getPersonId() {
+        return kind == Kind.PERSON ? id : null;
+    }
+
+    String getCreditName() {
+        return kind == Kind.CREDIT ? child : null;
+    }
+
+    String getIdentifier() {
+        switch (kind) {
+            case ROOT:
+                return "root";
+            case FOLDER:
+                return root + ROOT_FOLDER_SUFFIX;
+            case YEAR:
+                return FOLDER_PREFIX + year;
+            case MONTH:
+                return FOLDER_PREFIX + year + "/" + month;
+            case MOVIE:
+                return MOVIE_PREFIX + id;
+            case CREDIT:
+                return CREDIT_PREFIX + id + "-" + child;
+            case LIST:
+                return LIST_PREFIX + id;
+            case MOVIE_REF:
+                return MOVIE_REF_PREFIX + id + "-" + child;
+            default:
+                return PERSON_PREFIX + id;
+        }
+    }
+
+    /**
+     * @return the path of the node, or <code>null</code> for a movie or a credit parsed from an identifier, whose path
+     * depends on the release date of the movie
+     */
+    String getPath() {
+        switch (kind) {
+            case ROOT:
+                return "/";
+            case FOLDER:
+                return "/" + root;
+            case YEAR:
+                return "/movies/" + year;
+            case MONTH:
+                return "/movies/" + year + "/" + month;
+            case MOVIE:
+                return year != null ? "/movies/" + year + "/" + month + "/" + id : null;
+            case CREDIT:
+                return year != null ? "/movies/" + year + "/" + month + "/" + id + "/" + child : null;
+            case LIST:
+                return "/lists/" + id;
+            case MOVIE_REF:
+                return "/lists/" + id + "/" + child;
+            default:
+                return "/persons/" + id;
+        }
+    }
+
+    /**
+     * @return the key of the node at <code>path</code>, or <code>null</code> if no node can be there
+     */
+    static NodeKey parsePath(String path) {
+        int length = path.length();
+        if (length > 1 && path.charAt(length - 1) == '/') {
+            length--;
+        }
+        if (length == 0 || length == 1 && path.charAt(0) == '/') {
+            return ROOT;
+        }
+        if (path.charAt(0) != '/') {
+            return null;
+        }
+        int start = 1;
+        int end = segmentEnd(path, start, length);
+        NodeKey folder = getFolder(path, start, end);
+        if (folder == null || end == length) {
+            return folder;
+        }
+        start = end + 1;
+        end = segmentEnd(path, start, length);
+        if (folder == LISTS_FOLDER) {
+            if (!isListId(path, start, end)) {
+                return null;
+            }
+            String listId = path.substring(start, end);
+            if (end == length) {
+                return new NodeKey(Kind.LIST, LISTS, null, null, listId, null);
+            }
+            start = end + 1;
+            end = segmentEnd(path, start, length);
+            return end == length && isNumber(path, start, end)
+                    ? new NodeKey(Kind.MOVIE_REF, LISTS, null, null, listId, path.substring(start, end)) : null;
+        }
+        if (folder == PERSONS_FOLDER) {
+            return end == length && isNumber(path, start, end)
+                    ? new NodeKey(Kind.PERSON, PERSONS, null, null, path.substring(start, end), null) : null;
+        }
+        if (!isDigits(path, start, end, 4)) {
+            return null;
+        }
+        String year = path.substring(start, end);
+        if (end == length) {
+            return new NodeKey(Kind.YEAR, MOVIES, year, null, null, null);
+        }
+        start = end + 1;
+        end = segmentEnd(path, start, length);
+        if (!isDigits(path, start, end, 2)) {
+            return null;
+        }
+        String month = path.substring(start, end);
+        if (end == length) {
+            return new NodeKey(Kind.MONTH, MOVIES, year, month, null, null);
+        }
+        start = end + 1;
+        end = segmentEnd(path, start, length);
+        if (!isNumber(path, start, end)) {
+            return null;
+        }
+        String movieId = path.substring(start, end);
+        if (end == length) {
+            return new NodeKey(Kind.MOVIE, MOVIES, year, month, movieId, null);
+        }
+        start = end + 1;
+        end = segmentEnd(path, start, length);
+        return end == length && end > start
+                ? new NodeKey(Kind.CREDIT, MOVIES, year, month, movieId, path.substring(start, end)) : null;
+    }
+
+    /**
+     * @return the key of the node with this identifier, or <code>null</code> if the provider has no such node
+     */
+    static NodeKey parseIdentifier(String identifier) {
+        int length = identifier.length();
+        if (identifier.equals("root")) {
+            return ROOT;
+        }
+        if (identifier.endsWith(ROOT_FOLDER_SUFFIX)) {
+            return length == MOVIES.length() + ROOT_FOLDER_SUFFIX.length() || length == LISTS.length() + ROOT_FOLDER_SUFFIX.length()
+                    || length == PERSONS.length() + ROOT_FOLDER_SUFFIX.length()
+                    ? getFolder(identifier, 0, length - ROOT_FOLDER_SUFFIX.length()) : null;
+        }
+        if (identifier.startsWith(FOLDER_PREFIX)) {
+            int start = FOLDER_PREFIX.length();
+            if (!isDigits(identifier, start, start + 4, 4)) {
+                return null;
+            }
+            String year = identifier.substring(start, start + 4);
+            if (length == start + 4) {
+                return new NodeKey(Kind.YEAR, MOVIES, year, null, null, null);
+            }
+            return length == start + 7 && identifier.charAt(start + 4) == '/' && isDigits(identifier, start + 5, length, 2)
+                    ? new NodeKey(Kind.MONTH, MOVIES, year, identifier.substring(start + 5), null, null) : null;
+        }
+        if (identifier.startsWith(MOVIE_PREFIX)) {
+            return isNumber(identifier, MOVIE_PREFIX.length(), length)
+                    ? new NodeKey(Kind.MOVIE, MOVIES, null, null, identifier.substring(MOVIE_PREFIX.length()), null) : null;
+        }
+        if (identifier.startsWith(CREDIT_PREFIX)) {
+            int separator = identifier.indexOf('-', CREDIT_PREFIX.length());
+            return separator > 0 && separator < length - 1 && isNumber(identifier, CREDIT_PREFIX.length(), separator)
+                    ? new NodeKey(Kind.CREDIT, MOVIES, null, null, identifier.substring(CREDIT_PREFIX.length(), separator),
+                    identifier.substring(separator + 1)) : null;
+        }
+        if (identifier.startsWith(LIST_PREFIX)) {
+            return isListId(identifier, LIST_PREFIX.length(), length)
+                    ? new NodeKey(Kind.LIST, LISTS, null, null, identifier.substring(LIST_PREFIX.length()), null) : null;
+        }
+        if (identifier.startsWith(MOVIE_REF_PREFIX)) {
+            int separator = identifier.indexOf('-', MOVIE_REF_PREFIX.length());
+            return separator > 0 && isListId(identifier, MOVIE_REF_PREFIX.length(), separator) && isNumber(identifier, separator + 1, length)
+                    ? new NodeKey(Kind.MOVIE_REF, LISTS, null, null, identifier.substring(MOVIE_REF_PREFIX.length(), separator),
+                    identifier.substring(separator + 1)) : null;
+        }
+        if (identifier.startsWith(PERSON_PREFIX)) {
+            return isNumber(identifier, PERSON_PREFIX.length(), length)
+                    ? new NodeKey(Kind.PERSON, PERSONS, null, null, identifier.substring(PERSON_PREFIX.length()), null) : null;
+        }
+        return null;
+    }
+
+    private static int segmentEnd(String path, int start, int length) {
+        int end = path.indexOf('/', start);
+        return end < 0 || end > length ? length : end;
+    }
+
+    private static NodeKey getFolder(String s, int start, int end) {
+        if (matches(s, start, end, MOVIES)) {
+            return MOVIES_FOLDER;
+        } else if (matches(s, start, end, LISTS)) {
+            return LISTS_FOLDER;
+        } else if (matches(s, start, end, PERSONS)) {
+            return PERSONS_FOLDER;
+        }
+        return null;
+    }
+
+    private static boolean matches(String s, int start, int end, String value) {
+        return end - start == value.length() && s.regionMatches(start, value, 0, value.length());
+    }
+
+    private static boolean isDigits(String s, int start, int end, int count) {
+        if (end - start != count || end > s.length()) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether the characters are a positive integer, as TMDB ids are
+     */
+    private static boolean isNumber(String s, int start, int end) {
+        if (end <= start || end - start > 10) {
+            return false;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value <= Integer.MAX_VALUE;
+    }
+
+    private static boolean isListId(String s, int start, int end) {
+        if (end <= start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if ((c < 'a' || c > 'z') && (c < '0' || c > '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,228 @@
+package org.jahia.modules.tmdbprovider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.RepositoryException;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Read-only list over a paginated TMDB result, whose pages are only loaded when an element they contain is read.
+ * When a page is read, the following ones are prefetched concurrently in the background, so that iterating over the
+ * list rarely waits and does not load its pages one after the other.
+ * <p>
+ * The size of the list is the total announced by the first page. If a page cannot be loaded, or holds less elements
+ * than announced, the list is cut before the missing elements : an iteration then ends there instead of failing.
+ */
+final class PagedList<T> extends AbstractList<T> implements RandomAccess {
+
+    private static final Logger logger = LoggerFactory.getLogger(PagedList.class);
+
+    interface PageLoader<T> {
+        /**
+         * @param page the page number, starting at 1 as in TMDB
+         */
+        List<T> load(int page) throws RepositoryException;
+    }
+
+    private final PageLoader<T> loader;
+    private final int pageSize;
+    private final Executor prefetchExecutor;
+    private final int prefetchPages;
+    private final AtomicReferenceArray<List<T>> pages;
+    /**
+     * The pages before this one have been loaded or submitted for prefetching
+     */
+    private final AtomicInteger prefetchedUntil = new AtomicInteger(1);
+    private volatile int size;
+
+    /**
+     * @param firstPage        the content of the first page, already loaded
+     * @param loader           the loader for the next pages
+     * @param pageSize         the number of elements in a page
+     * @param size             the total number of elements
+     * @param prefetchExecutor the executor used to prefetch pages, or <code>null</code> to disable prefetching
+     * @param prefetchPages    the number of pages prefetched after the page being read
+     */
+    PagedList(List<T> firstPage, PageLoader<T> loader, int pageSize, int size, Executor prefetchExecutor, int prefetchPages) {
+        this.loader = loader;
+        this.pageSize = pageSize;
+        this.size = size;
+        this.prefetchExecutor = prefetchExecutor;
+        this.prefetchPages = prefetchPages;
+        this.pages = new AtomicReferenceArray<>(Math.max(1, (size + pageSize - 1) / pageSize));
+        this.pages.set(0, firstPage);
+        truncate(0, firstPage);
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        List<T> page = getPage(index / pageSize);
+        int offset = index % pageSize;
+        if (offset >= page.size()) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        return page.get(offset);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return listIterator(0);
+    }
+
+    @Override
+    public ListIterator<T> listIterator(int index) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        return new PageIterator(index);
+    }
+
+    /**
+     * @return whether the element at <code>index</code> exists, after loading its page
+     */
+    private boolean isAvailable(int index) {
+        if (index >= size) {
+            return false;
+        }
+        getPage(index / pageSize);
+        return index < size;
+    }
+
+    private List<T> getPage(int page) {
+        List<T> items = pages.get(page);
+        if (items == null) {
+            try {
+                items = loader.load(page + 1);
+            } catch (RepositoryException e) {
+                logger.warn("Cannot load page {}, the list is cut to {} elements", page + 1, page * pageSize, e);
+                items = Collections.emptyList();
+            }
+            pages.set(page, items);
+        }
+        truncate(page, items);
+        prefetch(page);
+        return items;
+    }
+
+    /**
+     * Cuts the list before the end of <code>page</code> if it holds less elements than expected.
+     */
+    private void truncate(int page, List<T> items) {
+        int end = page * pageSize + items.size();
+        if (items.size() < pageSize && end < size) {
+            synchronized (this) {
+                if (end < size) {
+                    logger.debug("Page {} only holds {} elements, the list is cut from {} to {} elements", page + 1, items.size(), size, end);
+                    size = end;
+                }
+            }
+        }
+    }
+
+    /**
+     * Submits the loading of the pages following <code>page</code> which have not been submitted yet, each on its own
+     * so that they are loaded concurrently.
+     */
+    private void prefetch(int page) {
+        if (prefetchExecutor == null) {
+            return;
+        }
+        int until = Math.min(Math.min(page + 1 + prefetchPages, pages.length()), (size + pageSize - 1) / pageSize);
+        int from = prefetchedUntil.get();
+        while (from < until && !prefetchedUntil.compareAndSet(from, until)) {
+            from = prefetchedUntil.get();
+        }
+        for (int next = Math.max(from, page + 1); next < until; next++) {
+            if (pages.get(next) == null) {
+                submit(next);
+            }
+        }
+    }
+
+    private void submit(int page) {
+        try {
+            prefetchExecutor.execute(() -> {
+                try {
+                    pages.compareAndSet(page, null, loader.load(page + 1));
+                } catch (RepositoryException e) {
+                    // The page will be loaded again when it is read
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The page will be loaded when it is read
+        }
+    }
+
+    private final class PageIterator implements ListIterator<T> {
+
+        private int cursor;
+
+        private PageIterator(int cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return isAvailable(cursor);
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return get(cursor++);
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return cursor > 0 && cursor <= size;
+        }
+
+        @Override
+        public T previous() {
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+            return get(--cursor);
+        }
+
+        @Override
+        public int nextIndex() {
+            return cursor;
+        }
+
+        @Override
+        public int previousIndex() {
+            return cursor - 1;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void set(T t) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void add(T t) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.jahia.modules.tmdbprovider;
+
+import java.io.Serializable;
+
+/**
+ * Immutable person record, built from a <code>/3/person/{id}</code> payload.
+ */
+public final class Person implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String id;
+    private final String name;
+    private final String biography;
+    private final String homepage;
+    private final String profilePath;
+    private final String birthday;
+    private final String deathday;
+
+    public Person(String id, String name, String biography, String homepage, String profilePath, String birthday, String deathday) {
+        this.id = id;
+        this.name = name;
+        this.biography = biography;
+        this.homepage = homepage;
+        this.profilePath = profilePath;
+        this.birthday = birthday;
+        this.deathday = deathday;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getBiography() {
+        return biography;
+    }
+
+    public String getHomepage() {
+        return homepage;
+    }
+
+    public String getProfilePath() {
+        return profilePath;
+    }
+
+    public String getBirthday() {
+        return birthday;
+    }
+
+    public String getDeathday() {
+        return deathday;
+    }
+}
@@ -0,0 +1,70 @@
+package org.jahia.modules.tmdbprovider;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Immutable movie credits of a person, built from a <code>/3/person/{id}/movie_credits</code> payload.
+ */
+public final class PersonCredits implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String personId;
+    private final List<Entry> cast;
+    private final List<Entry> crew;
+
+    public PersonCredits(String personId, List<Entry> cast, List<Entry> crew) {
+        this.personId = personId;
+        this.cast = cast;
+        this.crew = crew;
+    }
+
+    public String getPersonId() {
+        return personId;
+    }
+
+    public List<Entry> getCast() {
+        return cast;
+    }
+
+    public List<Entry> getCrew() {
+        return crew;
+    }
+
+    public static final class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String movieId;
+        private final String releaseDate;
+        private final String creditId;
+        private final String job;
+
+        public Entry(String movieId, String releaseDate, String creditId, String job) {
+            this.movieId = movieId;
+            this.releaseDate = releaseDate;
+            this.creditId = creditId;
+            this.job = job;
+        }
+
+        public String getMovieId() {
+            return movieId;
+        }
+
+        public String getReleaseDate() {
+            return releaseDate;
+        }
+
+        public String getCreditId() {
+            return creditId;
+        }
+
+        /**
+         * @return the job of a crew credit, <code>null</code> for a cast credit
+         */
+        public String getJob() {
+            return job;
+        }
+    }
+}
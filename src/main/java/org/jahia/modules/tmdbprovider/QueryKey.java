@@ -0,0 +1,133 @@
+package org.jahia.modules.tmdbprovider;
+
+import org.jahia.modules.external.ExternalQuery;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+import javax.jcr.query.qom.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Normalized form of a query, used as the key of its cached results.
+ * <p>
+ * Two queries asking for the same nodes get the same key : the operands of <code>AND</code> and <code>OR</code> are
+ * flattened and sorted, and literals are written with their type. Selector names, which only name the node type in the
+ * query, are left out.
+ */
+final class QueryKey {
+
+    private QueryKey() {
+    }
+
+    /**
+     * @return the key of the query, or <code>null</code> if it holds a constraint or an ordering that cannot be
+     * normalized, in which case its results are not cached
+     */
+    static String of(String nodeType, ExternalQuery query) throws RepositoryException {
+        StringBuilder key = new StringBuilder(nodeType).append('|');
+        if (query.getConstraint() != null && !append(key, query.getConstraint())) {
+            return null;
+        }
+        key.append('|');
+        if (query.getOrderings() != null) {
+            for (Ordering ordering : query.getOrderings()) {
+                if (!append(key, ordering.getOperand())) {
+                    return null;
+                }
+                key.append(QueryObjectModelConstants.JCR_ORDER_DESCENDING.equals(ordering.getOrder()) ? " desc," : " asc,");
+            }
+        }
+        return key.append('|').append(query.getOffset()).append('|').append(query.getLimit()).toString();
+    }
+
+    private static boolean append(StringBuilder key, Constraint constraint) throws RepositoryException {
+        if (constraint instanceof And || constraint instanceof Or) {
+            boolean and = constraint instanceof And;
+            List<Constraint> operands = new ArrayList<>();
+            addOperands(constraint, and, operands);
+            List<String> normalized = new ArrayList<>(operands.size());
+            for (Constraint operand : operands) {
+                StringBuilder builder = new StringBuilder();
+                if (!append(builder, operand)) {
+                    return false;
+                }
+                normalized.add(builder.toString());
+            }
+            Collections.sort(normalized);
+            key.append(and ? "and(" : "or(");
+            for (String operand : normalized) {
+                key.append(operand).append(',');
+            }
+            key.append(')');
+        } else if (constraint instanceof Not) {
+            key.append("not(");
+            if (!append(key, ((Not) constraint).getConstraint())) {
+                return false;
+            }
+            key.append(')');
+        } else if (constraint instanceof Comparison) {
+            Comparison comparison = (Comparison) constraint;
+            if (!(comparison.getOperand2() instanceof Literal) || !append(key, comparison.getOperand1())) {
+                return false;
+            }
+            key.append(' ').append(comparison.getOperator()).append(' ');
+            append(key, ((Literal) comparison.getOperand2()).getLiteralValue());
+        } else if (constraint instanceof PropertyExistence) {
+            key.append("exists(").append(((PropertyExistence) constraint).getPropertyName()).append(')');
+        } else if (constraint instanceof FullTextSearch) {
+            FullTextSearch search = (FullTextSearch) constraint;
+            if (!(search.getFullTextSearchExpression() instanceof Literal)) {
+                return false;
+            }
+            key.append("contains(").append(search.getPropertyName()).append(',');
+            append(key, ((Literal) search.getFullTextSearchExpression()).getLiteralValue());
+            key.append(')');
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static void addOperands(Constraint constraint, boolean and, List<Constraint> operands) {
+        if (and && constraint instanceof And) {
+            addOperands(((And) constraint).getConstraint1(), true, operands);
+            addOperands(((And) constraint).getConstraint2(), true, operands);
+        } else if (!and && constraint instanceof Or) {
+            addOperands(((Or) constraint).getConstraint1(), false, operands);
+            addOperands(((Or) constraint).getConstraint2(), false, operands);
+        } else {
+            operands.add(constraint);
+        }
+    }
+
+    private static boolean append(StringBuilder key, DynamicOperand operand) {
+        if (operand instanceof PropertyValue) {
+            key.append('[').append(((PropertyValue) operand).getPropertyName()).append(']');
+        } else if (operand instanceof LowerCase) {
+            key.append("lower(");
+            if (!append(key, ((LowerCase) operand).getOperand())) {
+                return false;
+            }
+            key.append(')');
+        } else if (operand instanceof UpperCase) {
+            key.append("upper(");
+            if (!append(key, ((UpperCase) operand).getOperand())) {
+                return false;
+            }
+            key.append(')');
+        } else if (operand instanceof NodeName) {
+            key.append("name()");
+        } else if (operand instanceof NodeLocalName) {
+            key.append("localname()");
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static void append(StringBuilder key, Value value) throws RepositoryException {
+        key.append(value.getType()).append(':').append('\'').append(value.getString().replace("'", "''")).append('\'');
+    }
+}
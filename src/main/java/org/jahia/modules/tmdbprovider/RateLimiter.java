@@ -0,0 +1,146 @@
+package org.jahia.modules.tmdbprovider;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token bucket limiting the rate of the requests sent to TMDB.
+ * <p>
+ * The rate adapts to the server: it is halved every time TMDB answers with a 429, and grows back slowly to the
+ * configured rate with successful requests. The bucket can also be paused until a given time, when TMDB tells how
+ * long to wait with a <code>Retry-After</code> or <code>X-RateLimit-Reset</code> header : it is emptied and only
+ * refilled from the end of the pause, so that the requests held back are sent at the current rate once it ends
+ * instead of all at the same time.
+ */
+public final class RateLimiter {
+
+    private static final double MIN_RATE = 1;
+
+    private final double maxRate;
+    private final double capacity;
+
+    private double rate;
+    private double tokens;
+    // The time the tokens were last counted at, in the future during a pause
+    private long lastRefill;
+
+    private final AtomicInteger waitingThreads = new AtomicInteger();
+    private final LongAdder throttledRequests = new LongAdder();
+    private final LongAdder throttledNanos = new LongAdder();
+
+    /**
+     * @param permitsPerSecond the maximum number of requests per second
+     */
+    public RateLimiter(double permitsPerSecond) {
+        this.maxRate = Math.max(permitsPerSecond, MIN_RATE);
+        this.capacity = maxRate;
+        this.rate = maxRate;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Waits until a request can be sent.
+     */
+    public void acquire() throws InterruptedException {
+        long wait = reserve();
+        if (wait > 0) {
+            throttledRequests.increment();
+            throttledNanos.add(wait);
+            waitingThreads.incrementAndGet();
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } finally {
+                waitingThreads.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Takes a token from the bucket.
+     *
+     * @return the time to wait before sending the request, in nanoseconds
+     */
+    synchronized long reserve() {
+        long now = System.nanoTime();
+        refill(now);
+        tokens -= 1;
+        long wait = Math.max(0, lastRefill - now);
+        return tokens >= 0 ? wait : wait + (long) (-tokens * TimeUnit.SECONDS.toNanos(1) / rate);
+    }
+
+    private void refill(long now) {
+        if (now > lastRefill) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * rate / TimeUnit.SECONDS.toNanos(1));
+            lastRefill = now;
+        }
+    }
+
+    /**
+     * Holds back every request for the given delay.
+     */
+    public synchronized void pause(long delay, TimeUnit unit) {
+        long now = System.nanoTime();
+        long until = now + unit.toNanos(delay);
+        if (until > lastRefill) {
+            refill(now);
+            tokens = Math.min(tokens, 0);
+            lastRefill = until;
+        }
+    }
+
+    /**
+     * Called when TMDB rejected a request because of its rate limit : the rate is halved.
+     */
+    public synchronized void onThrottled() {
+        refill(System.nanoTime());
+        rate = Math.max(MIN_RATE, rate / 2);
+    }
+
+    /**
+     * Called when a request succeeded : the rate grows back to its configured value.
+     */
+    public synchronized void onSuccess() {
+        if (rate < maxRate) {
+            refill(System.nanoTime());
+            rate = Math.min(maxRate, rate + maxRate / 20);
+        }
+    }
+
+    /**
+     * @return the current rate, in requests per second
+     */
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    /**
+     * @return the part of the bucket currently consumed, between 0 (idle) and 1 (every request waits)
+     */
+    public synchronized double getSaturation() {
+        refill(System.nanoTime());
+        return Math.min(1, Math.max(0, 1 - tokens / capacity));
+    }
+
+    /**
+     * @return the number of threads currently waiting for a permit
+     */
+    public int getWaitingThreads() {
+        return waitingThreads.get();
+    }
+
+    /**
+     * @return the number of requests that had to wait for a permit
+     */
+    public long getThrottledRequests() {
+        return throttledRequests.sum();
+    }
+
+    /**
+     * @return the total time spent waiting for permits, in milliseconds
+     */
+    public long getThrottledTime() {
+        return TimeUnit.NANOSECONDS.toMillis(throttledNanos.sum());
+    }
+}
@@ -0,0 +1,265 @@
+package org.jahia.modules.tmdbprovider;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.statistics.StatisticsGateway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Two tier cache for TMDB data : one Ehcache region in memory per {@link CacheRegion}, backed by an optional
+ * {@link DiskCacheStore}. Memory misses are read through from the disk, and every entry of a persistent region put in
+ * memory is written to the disk in the background.
+ * <p>
+ * Pending disk writes are kept by key, so that only the last value of a key is written when it changes faster than
+ * the disk is written. Writes are never run by the threads putting entries : when too many keys are pending, new ones
+ * are not written to the disk at all, and will be loaded again from TMDB after a restart.
+ * <p>
+ * Entries are fresh during the time to live of their region, counted from the time they were first written, even when
+ * read back from the disk. They are then kept as stale for the stale time to live, during which they can still be
+ * served while they are refreshed.
+ */
+final class TMDBCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TMDBCache.class);
+
+    static final int MAX_PENDING_WRITES = 10000;
+
+    // Pending value of a key removed from the cache
+    private static final Object REMOVED = new Object();
+
+    /**
+     * A cached value, with the time it was written at.
+     */
+    static final class Entry {
+        private final Object value;
+        private final long writtenAt;
+        private final boolean stale;
+
+        private Entry(Object value, long writtenAt, boolean stale) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+            this.stale = stale;
+        }
+
+        Object getValue() {
+            return value;
+        }
+
+        long getWrittenAt() {
+            return writtenAt;
+        }
+
+        /**
+         * @return whether the time to live of the entry has passed, and it should be refreshed
+         */
+        boolean isStale() {
+            return stale;
+        }
+    }
+
+    private final Map<CacheRegion, Cache> regions = new EnumMap<>(CacheRegion.class);
+    private final Map<CacheRegion, Long> timeToLive = new EnumMap<>(CacheRegion.class);
+    private final Map<CacheRegion, LongAdder> diskHits = new EnumMap<>(CacheRegion.class);
+    private final Map<CacheRegion, LongAdder> staleHits = new EnumMap<>(CacheRegion.class);
+    private final long staleTimeToLive;
+    private final DiskCacheStore disk;
+    private final ExecutorService diskWriter;
+    private final ConcurrentMap<String, Object> pendingWrites = new ConcurrentHashMap<>();
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+    private final LongAdder droppedWrites = new LongAdder();
+
+    /**
+     * @param cacheManager the manager in which the memory regions are created
+     * @param config       the provider configuration, holding the settings of every region
+     * @param disk         the disk store, or <code>null</code> to only cache in memory
+     * @param diskWriter   the executor writing to the disk store, a single thread is enough as writes are batched
+     */
+    TMDBCache(CacheManager cacheManager, TMDBDataSource.Config config, DiskCacheStore disk, ExecutorService diskWriter) {
+        this.staleTimeToLive = TimeUnit.SECONDS.toMillis(config.staleTimeToLive());
+        this.disk = disk;
+        this.diskWriter = diskWriter;
+        for (CacheRegion region : CacheRegion.values()) {
+            long regionTimeToLive = region.createCache(cacheManager, config, config.staleTimeToLive());
+            regions.put(region, cacheManager.getCache(region.getCacheName()));
+            timeToLive.put(region, TimeUnit.SECONDS.toMillis(regionTimeToLive));
+            diskHits.put(region, new LongAdder());
+            staleHits.put(region, new LongAdder());
+        }
+    }
+
+    /**
+     * @return the value cached under <code>key</code>, fresh or stale, or <code>null</code>
+     */
+    Object get(String key) {
+        Entry entry = getEntry(key);
+        return entry != null ? entry.getValue() : null;
+    }
+
+    /**
+     * @return the entry cached under <code>key</code>, or <code>null</code> if there is none or it is too old to be
+     * served, even as stale
+     */
+    Entry getEntry(String key) {
+        CacheRegion region = CacheRegion.forKey(key);
+        Cache memory = regions.get(region);
+        Element element = memory.get(key);
+        Entry entry = null;
+        if (element != null) {
+            entry = (Entry) element.getObjectValue();
+        } else if (disk != null && region.isPersistent()) {
+            DiskCacheStore.Entry stored = disk.get(key);
+            if (stored != null && !isExpired(region, stored.getWrittenAt(), staleTimeToLive)) {
+                entry = new Entry(stored.getValue(), stored.getWrittenAt(), false);
+                element = new Element(key, entry);
+                long remaining = timeToLive.get(region) + staleTimeToLive - (System.currentTimeMillis() - stored.getWrittenAt());
+                if (timeToLive.get(region) > 0) {
+                    element.setTimeToLive((int) Math.min(Math.max(TimeUnit.MILLISECONDS.toSeconds(remaining), 1), Integer.MAX_VALUE));
+                }
+                memory.put(element);
+                diskHits.get(region).increment();
+            }
+        }
+        if (entry != null && isExpired(region, entry.getWrittenAt(), 0)) {
+            staleHits.get(region).increment();
+            return new Entry(entry.getValue(), entry.getWrittenAt(), true);
+        }
+        return entry;
+    }
+
+    void put(String key, Object value) {
+        CacheRegion region = CacheRegion.forKey(key);
+        regions.get(region).put(new Element(key, new Entry(value, System.currentTimeMillis(), false)));
+        if (disk != null && region.isPersistent() && value instanceof Serializable) {
+            scheduleWrite(key, value);
+        }
+    }
+
+    /**
+     * @return whether an entry was cached under <code>key</code>, in memory or on the disk
+     */
+    boolean remove(String key) {
+        CacheRegion region = CacheRegion.forKey(key);
+        boolean removed = regions.get(region).remove(key);
+        if (disk != null && region.isPersistent()) {
+            removed |= disk.contains(key);
+            scheduleWrite(key, REMOVED);
+        }
+        return removed;
+    }
+
+    void removeAll() {
+        for (Cache memory : regions.values()) {
+            memory.removeAll();
+        }
+        if (disk != null) {
+            pendingWrites.clear();
+            disk.removeAll();
+        }
+    }
+
+    private void scheduleWrite(String key, Object value) {
+        if (pendingWrites.size() >= MAX_PENDING_WRITES && !pendingWrites.containsKey(key)) {
+            droppedWrites.increment();
+            return;
+        }
+        pendingWrites.put(key, value);
+        if (writeScheduled.compareAndSet(false, true)) {
+            try {
+                diskWriter.execute(this::writePending);
+            } catch (RejectedExecutionException e) {
+                // Stopped, the pending writes are done when closing
+                writeScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Writes the last value of every pending key to the disk.
+     */
+    private void writePending() {
+        // Cleared first, so that keys put after they are passed here schedule another run
+        writeScheduled.set(false);
+        for (String key : pendingWrites.keySet()) {
+            Object value = pendingWrites.remove(key);
+            if (value == REMOVED) {
+                disk.remove(key);
+            } else if (value != null) {
+                disk.put(key, (Serializable) value);
+            }
+        }
+    }
+
+    private boolean isExpired(CacheRegion region, long writtenAt, long grace) {
+        long regionTimeToLive = timeToLive.get(region);
+        return regionTimeToLive > 0 && System.currentTimeMillis() - writtenAt > regionTimeToLive + grace;
+    }
+
+    /**
+     * @return the statistics of every region, keyed by region name
+     */
+    Map<String, CacheStatistics> getStatistics() {
+        Map<String, CacheStatistics> statistics = new LinkedHashMap<>();
+        for (Map.Entry<CacheRegion, Cache> entry : regions.entrySet()) {
+            Cache memory = entry.getValue();
+            StatisticsGateway gateway = memory.getStatistics();
+            statistics.put(memory.getName(), new CacheStatistics(memory.getName(), memory.getSize(), gateway.cacheHitCount(),
+                    gateway.cacheMissCount(), gateway.cacheEvictedCount(), gateway.cacheExpiredCount(),
+                    diskHits.get(entry.getKey()).sum(), staleHits.get(entry.getKey()).sum()));
+        }
+        return statistics;
+    }
+
+    /**
+     * @return the number of entries on disk
+     */
+    int getDiskSize() {
+        return disk != null ? disk.getSize() : 0;
+    }
+
+    /**
+     * @return the number of entries waiting to be written to the disk
+     */
+    int getPendingWrites() {
+        return pendingWrites.size();
+    }
+
+    /**
+     * @return the number of entries not written to the disk because too many were pending
+     */
+    long getDroppedWrites() {
+        return droppedWrites.sum();
+    }
+
+    /**
+     * Writes the pending entries and closes the disk store.
+     */
+    void close() {
+        if (disk != null) {
+            diskWriter.shutdown();
+            try {
+                diskWriter.awaitTermination(10, TimeUnit.SECONDS);
+                writePending();
+                disk.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                logger.warn("Error while closing TMDB disk cache", e);
+            }
+        }
+    }
+}
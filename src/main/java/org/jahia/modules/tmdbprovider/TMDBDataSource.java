@@ -1,21 +1,30 @@
 package org.jahia.modules.tmdbprovider;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
-import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheException;
-import net.sf.ehcache.Element;
+import net.sf.ehcache.CacheManager;
 import org.apache.commons.lang.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.utils.DateUtils;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.ssl.SSLContexts;
 import org.apache.http.util.EntityUtils;
 import org.jahia.exceptions.JahiaInitializationException;
 import org.jahia.modules.external.*;
@@ -26,8 +35,9 @@ import org.jahia.services.cache.CacheProvider;
 import org.jahia.services.content.JCRSessionFactory;
 import org.jahia.services.content.JCRStoreProvider;
 import org.jahia.services.content.nodetypes.NodeTypeRegistry;
+import org.jahia.settings.SettingsBean;
 import org.joda.time.DateTime;
-import org.json.JSONArray;
+import org.joda.time.DateTimeZone;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.osgi.service.component.annotations.Activate;
@@ -41,14 +51,28 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.jcr.*;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.net.ssl.SSLContext;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.regex.Pattern;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 @Component(service={ExternalDataSource.class, TMDBDataSource.class}, immediate = true, configurationPid = "org.jahia.modules.tmdbprovider")
 @Designate(ocd = TMDBDataSource.Config.class)
-public class TMDBDataSource implements ExternalDataSource, ExternalDataSource.LazyProperty, ExternalDataSource.Searchable {
+public class TMDBDataSource implements ExternalDataSource, ExternalDataSource.LazyProperty, ExternalDataSource.Searchable,
+        ExternalDataSource.CanLoadChildrenInBatch {
 
     @ObjectClassDefinition(name = "TMDB Provider", description = "A TMDB Provider configuration")
     public @interface Config {
@@ -58,41 +82,221 @@ public class TMDBDataSource implements ExternalDataSource, ExternalDataSource.La
         @AttributeDefinition(name = "TMDB Mount path", defaultValue = "/sites/digitall/contents/tmdb", description = "The path at which to mount the database in the JCR")
         String mountPoint() default "/sites/digitall/contents/tmdb";
 
+        @AttributeDefinition(name = "API scheme", defaultValue = "https", description = "The scheme of the TMDB API, http can be used with a local stub server")
+        String apiScheme() default "https";
+
+        @AttributeDefinition(name = "API host", defaultValue = "api.themoviedb.org", description = "The host of the TMDB API")
+        String apiHost() default "api.themoviedb.org";
+
+        @AttributeDefinition(name = "API port", defaultValue = "-1", description = "The port of the TMDB API, -1 for the default port of the scheme")
+        int apiPort() default -1;
+
+        @AttributeDefinition(name = "Fetch threads", defaultValue = "4", description = "The maximum number of requests sent concurrently to TMDB when several pages are needed")
+        int fetchThreads() default 4;
+
+        @AttributeDefinition(name = "Requests per second", defaultValue = "40", description = "The maximum number of requests per second sent to TMDB")
+        int requestsPerSecond() default 40;
+
+        @AttributeDefinition(name = "Max retries", defaultValue = "3", description = "The number of times a request is retried when TMDB answers with a 429 or a 5xx status")
+        int maxRetries() default 3;
+
+        @AttributeDefinition(name = "Retry delay", defaultValue = "500", description = "The base delay in milliseconds before retrying a request, doubled on every attempt, unless TMDB sends a Retry-After header")
+        long retryDelay() default 500;
+
+        @AttributeDefinition(name = "Max connections", defaultValue = "20", description = "The maximum number of pooled connections to TMDB")
+        int maxConnections() default 20;
+
+        @AttributeDefinition(name = "Max connections per route", defaultValue = "20", description = "The maximum number of pooled connections per route. All requests go to the same host, so this is the effective parallelism")
+        int maxConnectionsPerRoute() default 20;
+
+        @AttributeDefinition(name = "Socket timeout", defaultValue = "60000", description = "The socket read timeout in milliseconds")
+        int socketTimeout() default 60000;
+
+        @AttributeDefinition(name = "Connect timeout", defaultValue = "15000", description = "The connection timeout in milliseconds")
+        int connectTimeout() default 15000;
+
+        @AttributeDefinition(name = "Connection request timeout", defaultValue = "15000", description = "The maximum time in milliseconds to wait for a connection from the pool")
+        int connectionRequestTimeout() default 15000;
+
+        @AttributeDefinition(name = "Idle connection timeout", defaultValue = "30000", description = "The time in milliseconds after which an idle connection is evicted from the pool, also used as keep-alive when TMDB does not send one")
+        long idleConnectionTimeout() default 30000;
+
+        @AttributeDefinition(name = "Connection time to live", defaultValue = "300000", description = "The maximum lifetime in milliseconds of a pooled connection, 0 for no limit")
+        long connectionTimeToLive() default 300000;
+
+        @AttributeDefinition(name = "TLS session cache size", defaultValue = "100", description = "The number of TLS sessions kept for reuse, 0 for no limit")
+        int tlsSessionCacheSize() default 100;
+
+        @AttributeDefinition(name = "TLS session timeout", defaultValue = "86400", description = "The time in seconds during which a TLS session can be reused")
+        int tlsSessionTimeout() default 86400;
+
+        @AttributeDefinition(name = "Disk cache", defaultValue = "true", description = "Whether the cache is also stored on disk, under the Jahia var directory, so that it survives restarts")
+        boolean diskCacheEnabled() default true;
+
+        @AttributeDefinition(name = "Disk cache size", defaultValue = "256", description = "The maximum size of the disk cache in megabytes, the oldest entries are dropped above it")
+        int diskCacheSize() default 256;
+
+        @AttributeDefinition(name = "Disk cache time to live", defaultValue = "604800", description = "The time in seconds after which an entry of the disk cache is no longer used, 0 for no limit")
+        long diskCacheTimeToLive() default 604800;
+
+        @AttributeDefinition(name = "Disk cache compaction ratio", defaultValue = "50", description = "The percentage of overwritten entries in the disk cache above which it is compacted")
+        int diskCacheCompactionRatio() default 50;
+
+        @AttributeDefinition(name = "Stale time to live", defaultValue = "86400", description = "The time in seconds during which an expired cache entry is still served, while it is refreshed in the background")
+        long staleTimeToLive() default 86400;
+
+        @AttributeDefinition(name = "Configuration cache", defaultValue = "ttl=604800, maxEntries=10, eviction=LRU", description = "The time to live in seconds, maximum number of entries and eviction policy (LRU, LFU or FIFO) of the TMDB configuration")
+        String cacheConfiguration() default "ttl=604800, maxEntries=10, eviction=LRU";
+
+        @AttributeDefinition(name = "Discover cache", defaultValue = "ttl=86400, maxEntries=5000, eviction=LRU", description = "The cache settings of the discover pages, used for month folders and popular movies")
+        String cacheDiscover() default "ttl=86400, maxEntries=5000, eviction=LRU";
+
+        @AttributeDefinition(name = "Movies cache", defaultValue = "ttl=86400, maxEntries=20000, eviction=LRU", description = "The cache settings of the movies, summaries and full movies in every language")
+        String cacheMovies() default "ttl=86400, maxEntries=20000, eviction=LRU";
+
+        @AttributeDefinition(name = "Credits cache", defaultValue = "ttl=86400, maxEntries=10000, eviction=LRU", description = "The cache settings of the movie credits and person credits")
+        String cacheCredits() default "ttl=86400, maxEntries=10000, eviction=LRU";
+
+        @AttributeDefinition(name = "Persons cache", defaultValue = "ttl=86400, maxEntries=10000, eviction=LRU", description = "The cache settings of the persons")
+        String cachePersons() default "ttl=86400, maxEntries=10000, eviction=LRU";
+
+        @AttributeDefinition(name = "Lists cache", defaultValue = "ttl=300, maxEntries=500, eviction=LRU", description = "The cache settings of the lists of the account, never stored on disk")
+        String cacheLists() default "ttl=300, maxEntries=500, eviction=LRU";
+
+        @AttributeDefinition(name = "Indexing markers cache", defaultValue = "ttl=604800, maxEntries=100000, eviction=FIFO", description = "The cache settings of the markers of the movies already sent to the indexer")
+        String cacheMarkers() default "ttl=604800, maxEntries=100000, eviction=FIFO";
+
+        @AttributeDefinition(name = "Not found cache", defaultValue = "ttl=600, maxEntries=20000, eviction=LRU", description = "The cache settings of the movies, persons and lists that TMDB does not know, which are not queried again until they expire")
+        String cacheNotFound() default "ttl=600, maxEntries=20000, eviction=LRU";
+
+        @AttributeDefinition(name = "Query results cache", defaultValue = "ttl=300, maxEntries=5000, eviction=LRU", description = "The cache settings of the results of the queries, never stored on disk")
+        String cacheQueries() default "ttl=300, maxEntries=5000, eviction=LRU";
+
+        @AttributeDefinition(name = "Title index size", defaultValue = "100000", description = "The maximum number of movies in the local index answering title searches without querying TMDB, 0 to disable")
+        int titleIndexMaxMovies() default 100000;
+
+        @AttributeDefinition(name = "Changes poll interval", defaultValue = "3600", description = "The interval in seconds at which the TMDB changes feeds are polled to evict the changed movies and persons from the cache, 0 to disable")
+        long changesPollInterval() default 3600;
+
+        @AttributeDefinition(name = "Indexing batch size", defaultValue = "50", description = "The maximum number of movies sent to the indexer at once")
+        int indexingBatchSize() default 50;
+
+        @AttributeDefinition(name = "Indexing delay", defaultValue = "2000", description = "The maximum time in milliseconds a movie waits for its batch to be full before being sent to the indexer")
+        long indexingMaxDelay() default 2000;
+
+        @AttributeDefinition(name = "Indexing queue size", defaultValue = "1000", description = "The maximum number of movies waiting to be sent to the indexer, the next ones are sent on a later access")
+        int indexingQueueSize() default 1000;
+
+        @AttributeDefinition(name = "Warm-up", defaultValue = "true", description = "Whether the cache is warmed up in the background when the provider starts")
+        boolean warmUpEnabled() default true;
+
+        @AttributeDefinition(name = "Warm-up months", defaultValue = "3", description = "The number of most recent month folders loaded by the warm-up")
+        int warmUpMonths() default 3;
+
+        @AttributeDefinition(name = "Warm-up popular pages", defaultValue = "5", description = "The number of pages of the most popular movies loaded by the warm-up")
+        int warmUpPopularPages() default 5;
+
+        @AttributeDefinition(name = "Warm-up credits", defaultValue = "true", description = "Whether the warm-up also loads the full movie and credits of the most popular movies")
+        boolean warmUpCredits() default true;
+
+        @AttributeDefinition(name = "Prefetch", defaultValue = "true", description = "Whether the full movie and credits of a movie are loaded in the background as soon as its node is accessed")
+        boolean prefetchEnabled() default true;
+
+        @AttributeDefinition(name = "Warm-up max saturation", defaultValue = "50", description = "The percentage of the request rate above which warm-up and prefetch requests wait, so that they do not slow down visitors")
+        int warmUpMaxSaturation() default 50;
+
+        @AttributeDefinition(name = "Circuit breaker window", defaultValue = "20", description = "The number of recent requests on which the failure rate of TMDB is computed")
+        int circuitBreakerWindowSize() default 20;
+
+        @AttributeDefinition(name = "Circuit breaker minimum requests", defaultValue = "10", description = "The number of requests needed in the window before the circuit can open")
+        int circuitBreakerMinimumCalls() default 10;
+
+        @AttributeDefinition(name = "Circuit breaker failure rate", defaultValue = "50", description = "The percentage of failed requests above which TMDB is no longer queried")
+        int circuitBreakerFailureRate() default 50;
+
+        @AttributeDefinition(name = "Circuit breaker open duration", defaultValue = "30000", description = "The time in milliseconds during which TMDB is not queried once the circuit is open, before a probe request is sent")
+        long circuitBreakerOpenDuration() default 30000;
+
     }
 
     private static final Logger logger = LoggerFactory.getLogger(TMDBDataSource.class);
     public static final HashSet<String> LAZY_PROPERTIES = Sets.newHashSet("original_title", "homepage", "status", "runtime", "imdb_id", "budget", "revenue");
+    public static final HashSet<String> LAZY_FULL_MOVIE_PROPERTIES = Sets.newHashSet("j:tagList", "j:keywords");
     public static final HashSet<String> LAZY_I18N_PROPERTIES = Sets.newHashSet("jcr:title", "overview", "tagline", "poster_path");
 
     public static final HashSet<String> ROOT_NODES = Sets.newHashSet("movies", "lists", "persons");
-    public static final int SOCKET_TIMEOUT = 60000;
-    public static final int CONNECT_TIMEOUT = 15000;
-    public static final int MAX_CONNECTIONS = 10;
-    public static final int DEFAULT_MAX_PER_ROUTE = 2;
+    public static final String DEFAULT_LANGUAGE = "en";
+    public static final List<String> LANGUAGES = Arrays.asList("en", "fr");
+    public static final int SC_TOO_MANY_REQUESTS = 429;
+    public static final long MAX_RETRY_DELAY = 30000;
+    public static final int PAGE_SIZE = 20;
+    public static final int MAX_DISCOVER_PAGES = 100;
+    public static final int MAX_TMDB_PAGES = 500;
+    private static final int SEARCH_BATCH_PAGES = 4;
+    private static final int MAX_BATCH_MONTH_PAGES = 10;
+    private static final int MAX_LOCAL_TITLE_RESULTS = 200;
+    public static final String NOT_FOUND_PREFIX = "notfound-";
+    public static final int MAX_CHANGES_DAYS = 14;
+    private static final String[] STATUS_COUNTERS = new String[600];
+
+    static {
+        for (int status = 0; status < STATUS_COUNTERS.length; status++) {
+            STATUS_COUNTERS[status] = "tmdb.status." + status;
+        }
+    }
+    private static final long CHANGES_STARTUP_DELAY = 60;
 
-    private static String API_URL = "api.themoviedb.org";
     private static String API_CONFIGURATION = "/3/configuration";
     private static String API_MOVIE = "/3/movie/";
     private static String API_TV = "/3/tv/";
     private static String API_DISCOVER_MOVIE = "/3/discover/movie";
     private static String API_DISCOVER_TV = "/3/discover/tv";
     private static String API_SEARCH_MOVIE = "/3/search/movie";
+    private static String API_GENRES = "/3/genre/movie/list";
     private static String API_KEY = "api_key";
+    private static String API_MOVIE_APPENDED_RESPONSES = "keywords,credits,translations";
 
-    private static Pattern YEAR_PATTERN = Pattern.compile("[0-9]{4,4}");
-    private static Pattern DATE_PATTERN = Pattern.compile("[0-9]{4,4}/[0-9]{2,2}");
 
     private static final List<String> EXTENDABLE_TYPES = Arrays.asList("nt:base");
 
     private CacheProvider cacheProvider;
-    private Cache cache;
+    private TMDBCache cache;
+    private TitleIndex titleIndex;
+    private volatile FolderChildren folderChildren;
+    // Incremented when the movies or the lists change, to invalidate the cached query results depending on them
+    private final AtomicLong moviesGeneration = new AtomicLong();
+    private final AtomicLong listsGeneration = new AtomicLong();
     private String apiKeyValue = "";
+    private String apiScheme = "https";
+    private String apiHost = "api.themoviedb.org";
+    private int apiPort = -1;
 
     private String accountId;
     private String token;
     private String sessionId;
 
     private HttpClient httpClient;
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    private final InFlightRequests inFlightRequests = new InFlightRequests();
+
+    private ExecutorService fetchExecutor;
+    private ScheduledExecutorService changesScheduler;
+    private IndexingQueue indexingQueue;
+    private CacheWarmer cacheWarmer;
+    private boolean prefetchEnabled;
+    private Path changesCheckpointFile;
+    private volatile long changesCheckpoint;
+
+    private RateLimiter rateLimiter = new RateLimiter(40);
+    private CircuitBreaker circuitBreaker = new CircuitBreaker(20, 10, 0.5, 30, TimeUnit.SECONDS);
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final LongAdder notFoundHits = new LongAdder();
+    private final TMDBMetrics metrics = new TMDBMetrics();
+    private ObjectName metricsName;
+    private int maxRetries = 3;
+    private long retryDelay = 500;
+    private int prefetchPages = 4;
 
     private ExternalContentStoreProviderFactory externalContentStoreProviderFactory;
 
@@ -105,6 +309,48 @@ public class TMDBDataSource implements ExternalDataSource, ExternalDataSource.La
         this.httpClient = httpClient;
     }
 
+    /**
+     * @return the rate limiter in front of TMDB, which exposes its saturation
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * @return the circuit breaker in front of TMDB, which exposes its state
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * @return the number of lookups answered from the cache of resources unknown to TMDB, without querying it
+     */
+    public long getNotFoundHits() {
+        return notFoundHits.sum();
+    }
+
+    /**
+     * @return the queue of the movies to send to the indexer, which exposes its depth and latency
+     */
+    public IndexingQueue getIndexingQueue() {
+        return indexingQueue;
+    }
+
+    /**
+     * @return the counters, gauges and latencies of the provider, also registered as an MBean
+     */
+    public TMDBMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return the statistics of every cache region, keyed by region name
+     */
+    public Map<String, CacheStatistics> getCacheStatistics() {
+        return cache != null ? cache.getStatistics() : Collections.<String, CacheStatistics>emptyMap();
+    }
+
     @Reference
     public void setCacheProvider(CacheProvider cacheProvider) {
         this.cacheProvider = cacheProvider;
@@ -126,25 +372,42 @@ public class TMDBDataSource implements ExternalDataSource, ExternalDataSource.La
             return;
         }
         RequestConfig requestConfig = RequestConfig.custom()
-                .setSocketTimeout(SOCKET_TIMEOUT)
-                .setConnectTimeout(CONNECT_TIMEOUT)
-                .setConnectionRequestTimeout(CONNECT_TIMEOUT)
+                .setSocketTimeout(config.socketTimeout())
+                .setConnectTimeout(config.connectTimeout())
+                .setConnectionRequestTimeout(config.connectionRequestTimeout())
                 .build();
 
+        // A single SSL context is shared by all connections, so that TLS sessions are resumed instead of renegotiated
+        SSLContext sslContext = SSLContexts.createDefault();
+        sslContext.getClientSessionContext().setSessionCacheSize(config.tlsSessionCacheSize());
+        sslContext.getClientSessionContext().setSessionTimeout(config.tlsSessionTimeout());
+
         Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
                 .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", new SSLConnectionSocketFactory(sslContext))
                 .build();
 
-        PoolingHttpClientConnectionManager httpConnectionManager = new PoolingHttpClientConnectionManager(registry);
-        httpConnectionManager.setMaxTotal(MAX_CONNECTIONS);
-        httpConnectionManager.setDefaultMaxPerRoute(DEFAULT_MAX_PER_ROUTE);
+        connectionManager = new PoolingHttpClientConnectionManager(registry, null, null, null,
+                config.connectionTimeToLive() > 0 ? config.connectionTimeToLive() : -1, TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(config.maxConnections());
+        connectionManager.setDefaultMaxPerRoute(config.maxConnectionsPerRoute());
+        connectionManager.setValidateAfterInactivity(1000);
 
+        long idleConnectionTimeout = config.idleConnectionTimeout();
+        // Content compression is enabled by default : gzip and deflate are requested and decoded transparently
         httpClient = HttpClients.custom()
-                .setConnectionManager(httpConnectionManager)
+                .setConnectionManager(connectionManager)
                 .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy((response, context) -> {
+                    long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return keepAlive > 0 ? Math.min(keepAlive, idleConnectionTimeout) : idleConnectionTimeout;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(idleConnectionTimeout, TimeUnit.MILLISECONDS)
                 .disableCookieManagement()
                 .build();
         this.apiKeyValue = config.apiKey();
+        initialize(config, cacheProvider.getCacheManager());
         externalContentStoreProvider = externalContentStoreProviderFactory.newProvider();
         externalContentStoreProvider.setDataSource(this);
         externalContentStoreProvider.setExtendableTypes(EXTENDABLE_TYPES);
@@ -156,11 +419,56 @@ public class TMDBDataSource implements ExternalDataSource, ExternalDataSource.La
             throw new RepositoryException("Error initializing TMDB Provider", e);
         }
 
-        try {
-            if (!cacheProvider.getCacheManager().cacheExists("tmdb-cache")) {
-                cacheProvider.getCacheManager().addCache("tmdb-cache");
+        indexingQueue = new IndexingQueue(this::sendIndexingBatch, config.indexingQueueSize(), config.indexingBatchSize(),
+                config.indexingMaxDelay(), TimeUnit.MILLISECONDS, newThreadFactory("tmdb-indexing", Thread.MIN_PRIORITY));
+
+        cacheWarmer = new CacheWarmer(rateLimiter, config.warmUpMaxSaturation() / 100d, 100, newThreadFactory("tmdb-warmup", Thread.MIN_PRIORITY));
+        prefetchEnabled = config.prefetchEnabled();
+        if (config.warmUpEnabled()) {
+            cacheWarmer.warmUp("startup", getWarmUpPlan(config));
+        }
+
+        if (config.changesPollInterval() > 0) {
+            // Without a disk cache, the cache starts empty and there is no need to look back before the start
+            changesCheckpointFile = config.diskCacheEnabled() ? getDataDirectory().resolve("changes.checkpoint") : null;
+            changesCheckpoint = readChangesCheckpoint();
+            if (changesCheckpoint == 0) {
+                // Without a checkpoint, the disk cache may still hold entries written up to its time to live ago
+                long now = System.currentTimeMillis();
+                changesCheckpoint = config.diskCacheEnabled()
+                        ? now - (config.diskCacheTimeToLive() > 0 ? TimeUnit.SECONDS.toMillis(config.diskCacheTimeToLive()) : TimeUnit.DAYS.toMillis(MAX_CHANGES_DAYS))
+                        : now;
             }
-            cache = cacheProvider.getCacheManager().getCache("tmdb-cache");
+            changesScheduler = Executors.newSingleThreadScheduledExecutor(newThreadFactory("tmdb-changes", Thread.MIN_PRIORITY));
+            // With a disk cache, the first poll catches up soon, but lets the startup and its warm-up go first
+            changesScheduler.scheduleWithFixedDelay(this::pollChanges,
+                    config.diskCacheEnabled() ? Math.min(CHANGES_STARTUP_DELAY, config.changesPollInterval()) : config.changesPollInterval(),
+                    config.changesPollInterval(), TimeUnit.SECONDS);
+        }
+
+        registerMetrics();
+    }
+
+    /**
+     * Creates the executors, the rate limiter, the circuit breaker and the cache. Apart from the http client, nothing
+     * else is needed to query TMDB, which lets the benchmarks run the provider outside of Jahia.
+     */
+    void initialize(Config config, CacheManager cacheManager) {
+        fetchExecutor = newExecutor("tmdb-fetch", config.fetchThreads(), Thread.NORM_PRIORITY);
+        prefetchPages = config.fetchThreads();
+        rateLimiter = new RateLimiter(config.requestsPerSecond());
+        circuitBreaker = new CircuitBreaker(config.circuitBreakerWindowSize(), config.circuitBreakerMinimumCalls(),
+                config.circuitBreakerFailureRate() / 100d, config.circuitBreakerOpenDuration(), TimeUnit.MILLISECONDS);
+        maxRetries = config.maxRetries();
+        retryDelay = config.retryDelay();
+        apiScheme = config.apiScheme();
+        apiHost = config.apiHost();
+        apiPort = config.apiPort();
+        titleIndex = config.titleIndexMaxMovies() > 0 ? new TitleIndex(config.titleIndexMaxMovies()) : null;
+        try {
+            DiskCacheStore diskCacheStore = config.diskCacheEnabled() ? openDiskCacheStore(config) : null;
+            cache = new TMDBCache(cacheManager, config, diskCacheStore,
+                    diskCacheStore != null ? newExecutor("tmdb-cache-writer", 1, Thread.MIN_PRIORITY, new ThreadPoolExecutor.AbortPolicy()) : null);
         } catch (IllegalStateException | CacheException e) {
             logger.error("Error while initializing cache for IMDB", e);
         }
@@ -168,135 +476,463 @@ public class TMDBDataSource implements ExternalDataSource, ExternalDataSource.La
 
     @Deactivate
     public void stop() {
-        if (httpClient != null) {
-            httpClient = null;
+        unregisterMetrics();
+        if (httpClient instanceof Closeable) {
+            try {
+                ((Closeable) httpClient).close();
+            } catch (IOException e) {
+                logger.warn("Error while closing TMDB http client", e);
+            }
+        }
+        httpClient = null;
+        if (connectionManager != null) {
+            connectionManager.shutdown();
+            connectionManager = null;
+        }
+        if (changesScheduler != null) {
+            changesScheduler.shutdownNow();
+            changesScheduler = null;
+        }
+        if (fetchExecutor != null) {
+            fetchExecutor.shutdownNow();
+            fetchExecutor = null;
+        }
+        if (cacheWarmer != null) {
+            cacheWarmer.stop();
+            cacheWarmer = null;
+        }
+        if (indexingQueue != null) {
+            indexingQueue.stop(10, TimeUnit.SECONDS);
+        }
+        if (cache != null) {
+            cache.close();
         }
         if (externalContentStoreProvider != null) {
             externalContentStoreProvider.stop();
         }
     }
 
+    /**
+     * Registers the gauges of the components of the provider, and exposes the metrics over JMX.
+     */
+    private void registerMetrics() {
+        metrics.registerGauge("rateLimiter.rate", () -> rateLimiter.getRate());
+        metrics.registerGauge("rateLimiter.saturation", () -> rateLimiter.getSaturation());
+        metrics.registerGauge("rateLimiter.waitingThreads", () -> rateLimiter.getWaitingThreads());
+        metrics.registerGauge("rateLimiter.throttledRequests", () -> rateLimiter.getThrottledRequests());
+        metrics.registerGauge("circuitBreaker.state", () -> circuitBreaker.getState().ordinal());
+        metrics.registerGauge("circuitBreaker.failureRate", () -> circuitBreaker.getFailureRate());
+        metrics.registerGauge("circuitBreaker.rejectedCalls", () -> circuitBreaker.getRejectedCalls());
+        metrics.registerGauge("circuitBreaker.openings", () -> circuitBreaker.getOpenings());
+        metrics.registerGauge("connections.leased", () -> connectionManager.getTotalStats().getLeased());
+        metrics.registerGauge("connections.available", () -> connectionManager.getTotalStats().getAvailable());
+        metrics.registerGauge("connections.pending", () -> connectionManager.getTotalStats().getPending());
+        metrics.registerGauge("indexing.queueDepth", () -> indexingQueue.getQueueDepth());
+        metrics.registerGauge("indexing.sentNodes", () -> indexingQueue.getSentNodes());
+        metrics.registerGauge("indexing.rejectedNodes", () -> indexingQueue.getRejectedNodes());
+        metrics.registerGauge("indexing.failedNodes", () -> indexingQueue.getFailedNodes());
+        metrics.registerGauge("indexing.averageFlushLatency", () -> indexingQueue.getAverageFlushLatency());
+        metrics.registerGauge("warmUp.completedTasks", () -> cacheWarmer.getCompletedTasks());
+        metrics.registerGauge("warmUp.failedTasks", () -> cacheWarmer.getFailedTasks());
+        metrics.registerGauge("warmUp.pendingTasks", () -> cacheWarmer.getPendingTasks());
+        metrics.registerGauge("warmUp.droppedPrefetches", () -> cacheWarmer.getDroppedPrefetches());
+        metrics.registerGauge("cache.notFoundHits", () -> notFoundHits.sum());
+        if (titleIndex != null) {
+            metrics.registerGauge("titleIndex.size", () -> titleIndex.size());
+        }
+        if (cache != null) {
+            metrics.registerGauge("cache.diskSize", () -> cache.getDiskSize());
+            metrics.registerGauge("cache.pendingDiskWrites", () -> cache.getPendingWrites());
+            metrics.registerGauge("cache.droppedDiskWrites", () -> cache.getDroppedWrites());
+            for (String name : cache.getStatistics().keySet()) {
+                metrics.registerGauge(name + ".size", () -> cache.getStatistics().get(name).getSize());
+                metrics.registerGauge(name + ".hitRatio", () -> cache.getStatistics().get(name).getHitRatio());
+                metrics.registerGauge(name + ".diskHits", () -> cache.getStatistics().get(name).getDiskHits());
+                metrics.registerGauge(name + ".staleHits", () -> cache.getStatistics().get(name).getStaleHits());
+                metrics.registerGauge(name + ".evictions", () -> cache.getStatistics().get(name).getEvictions());
+            }
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            metricsName = new ObjectName("org.jahia.modules.tmdbprovider:type=TMDBMetrics");
+            if (server.isRegistered(metricsName)) {
+                server.unregisterMBean(metricsName);
+            }
+            server.registerMBean(metrics, metricsName);
+        } catch (JMException e) {
+            logger.warn("Cannot register the TMDB metrics MBean: {}", e.getMessage());
+            metricsName = null;
+        }
+    }
+
+    private void unregisterMetrics() {
+        if (metricsName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+            } catch (JMException e) {
+                logger.debug("Cannot unregister the TMDB metrics MBean: {}", e.getMessage());
+            }
+            metricsName = null;
+        }
+        metrics.removeGauges();
+    }
+
+    /**
+     * @return the directory holding the files of the provider, under the Jahia var directory
+     */
+    private static Path getDataDirectory() {
+        return Paths.get(SettingsBean.getInstance().getJahiaVarDiskPath(), "tmdb");
+    }
+
+    private static DiskCacheStore openDiskCacheStore(Config config) {
+        Path file = getDataDirectory().resolve("tmdb-cache.dat");
+        try {
+            return new DiskCacheStore(file, config.diskCacheSize() * 1024L * 1024L, TimeUnit.SECONDS.toMillis(config.diskCacheTimeToLive()),
+                    config.diskCacheCompactionRatio() / 100d);
+        } catch (IOException e) {
+            logger.error("Cannot open TMDB disk cache " + file + ", only the memory cache is used", e);
+            return null;
+        }
+    }
+
+    /**
+     * Creates a bounded pool of daemon threads. When all threads are busy and the queue is full, the task runs in the
+     * calling thread.
+     */
+    private static ExecutorService newExecutor(String name, int threads, int priority) {
+        return newExecutor(name, threads, priority, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Creates a bounded pool of daemon threads, with the given policy for the tasks submitted when all threads are
+     * busy and the queue is full.
+     */
+    private static ExecutorService newExecutor(String name, int threads, int priority, RejectedExecutionHandler rejectionHandler) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(threads * 25),
+                newThreadFactory(name, priority), rejectionHandler);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ThreadFactory newThreadFactory(String name, int priority) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(priority);
+            return thread;
+        };
+    }
+
+    /**
+     * @return the steps loading the configuration, the most recent month folders and the most popular movies
+     */
+    private List<CacheWarmer.Task> getWarmUpPlan(Config config) {
+        List<CacheWarmer.Task> plan = new ArrayList<CacheWarmer.Task>();
+        plan.add(this::getConfiguration);
+        // Month folders are listed up to the previous month
+        DateTime month = new DateTime().minusMonths(1);
+        for (int i = 0; i < config.warmUpMonths(); i++, month = month.minusMonths(1)) {
+            String date = month.toString("yyyy-MM");
+            plan.add(() -> getMonthPage(date, 1));
+        }
+        for (int i = 1; i <= Math.min(config.warmUpPopularPages(), MAX_DISCOVER_PAGES); i++) {
+            int page = i;
+            plan.add(() -> {
+                MoviePage popular = getPopularPage(page);
+                if (config.warmUpCredits()) {
+                    for (Movie movie : popular.getResults()) {
+                        getCredits(movie.getId());
+                    }
+                }
+            });
+        }
+        return plan;
+    }
+
+    /**
+     * Evicts from the cache the movies and persons listed in the TMDB changes feeds since the last poll, and sends
+     * the changed movies that were already indexed to the indexer again.
+     * <p>
+     * The feeds only have a precision of one day, so a poll goes back to the start of the day of the previous one, and
+     * a movie changed today may be evicted several times. If a feed has more pages than TMDB serves, the changes cannot
+     * all be known and the whole cache is cleared instead.
+     * <p>
+     * Like the cache warm-up, the poll only uses the spare capacity of the rate limit, and waits while it is saturated
+     * by the requests of the visitors.
+     */
+    private void pollChanges() {
+        long now = System.currentTimeMillis();
+        long since = Math.max(changesCheckpoint, now - TimeUnit.DAYS.toMillis(MAX_CHANGES_DAYS));
+        String startDate = new DateTime(since, DateTimeZone.UTC).toString("yyyy-MM-dd");
+        String endDate = new DateTime(now, DateTimeZone.UTC).toString("yyyy-MM-dd");
+        try {
+            Set<String> movieIds = getChanges("/3/movie/changes", startDate, endDate);
+            Set<String> personIds = movieIds != null ? getChanges("/3/person/changes", startDate, endDate) : null;
+            if (movieIds == null || personIds == null) {
+                logger.warn("TMDB changes since {} have more than {} pages, the whole cache is cleared", startDate, MAX_TMDB_PAGES);
+                clearCache();
+            } else {
+                List<String> indexedMovieIds = new ArrayList<String>();
+                for (String movieId : movieIds) {
+                    if (cache.get("indexedfullmovie-" + movieId) != null) {
+                        indexedMovieIds.add(movieId);
+                    }
+                    evictMovie(movieId);
+                }
+                for (String personId : personIds) {
+                    evictPerson(personId);
+                }
+                reindexMovies(indexedMovieIds);
+                logger.info("Evicted {} movies and {} persons changed since {}, {} sent to the indexer", movieIds.size(), personIds.size(),
+                        startDate, indexedMovieIds.size());
+            }
+
+            changesCheckpoint = now;
+            writeChangesCheckpoint(now);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RepositoryException | RuntimeException e) {
+            logger.warn("Cannot poll TMDB changes since {}: {}", startDate, e.getMessage());
+        }
+    }
+
+    /**
+     * @return the ids listed in a changes feed, or <code>null</code> if it has more than {@link #MAX_TMDB_PAGES} pages
+     */
+    private Set<String> getChanges(String path, String startDate, String endDate) throws RepositoryException, InterruptedException {
+        Set<String> ids = new LinkedHashSet<String>();
+        int totalPages = 1;
+        for (int page = 1; page <= totalPages; page++) {
+            if (page > MAX_TMDB_PAGES) {
+                return null;
+            }
+            cacheWarmer.awaitCapacity();
+            TMDBResponseDecoder.ChangesPage changes = queryTMDB(TMDBResponseDecoder::readChanges, path,
+                    "start_date", startDate, "end_date", endDate, "page", String.valueOf(page));
+            ids.addAll(changes.getIds());
+            totalPages = changes.getTotalPages();
+        }
+        return ids;
+    }
+
+    /**
+     * Clears the cache and the title index. The movies are sent to the indexer again when they are next read.
+     */
+    private void clearCache() {
+        cache.removeAll();
+        if (titleIndex != null) {
+            titleIndex.clear();
+        }
+        moviesGeneration.incrementAndGet();
+    }
+
+    private void evictMovie(String movieId) {
+        boolean evicted = titleIndex != null && titleIndex.remove(movieId);
+        List<String> keys = new ArrayList<String>(Arrays.asList("movie-" + movieId, "movies-credits-" + movieId, "indexedfullmovie-" + movieId));
+        for (String lang : LANGUAGES) {
+            keys.add("fullmovie-" + lang + "-" + movieId);
+        }
+        if (evict(keys) || evicted) {
+            moviesGeneration.incrementAndGet();
+        }
+    }
+
+    private void evictPerson(String personId) {
+        if (evict(Arrays.asList("person-" + personId, "movie_credits_query_" + personId))) {
+            moviesGeneration.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes the entries, and the markers of the resources that were not found, since they may just have been created.
+     *
+     * @return whether one of the entries, other than an indexing marker, was cached, in which case the cached query
+     * results may depend on it
+     */
+    private boolean evict(List<String> keys) {
+        boolean evicted = false;
+        for (String key : keys) {
+            boolean removed = cache.remove(key);
+            if (!key.startsWith("indexedfullmovie-")) {
+                evicted |= removed | cache.remove(NOT_FOUND_PREFIX + key);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Fetches the movies again and queues them to be sent to the indexer.
+     */
+    private void reindexMovies(List<String> movieIds) throws InterruptedException {
+        for (String movieId : movieIds) {
+            try {
+                cacheWarmer.awaitCapacity();
+                indexMovie(buildMovieData("movie-" + movieId, movieId), movieId);
+            } catch (RepositoryException e) {
+                logger.debug("Cannot reindex movie {}: {}", movieId, e.getMessage());
+            }
+        }
+    }
+
+    private void sendAddedNodes(List<ExternalData> nodes) throws RepositoryException {
+        if (!nodes.isEmpty()) {
+            EventService eventService = BundleUtils.getOsgiService(EventService.class, null);
+            JCRStoreProvider jcrStoreProvider = JCRSessionFactory.getInstance().getProviders().get("TMDBProvider");
+            eventService.sendAddedNodes(nodes, jcrStoreProvider);
+        }
+    }
+
+    private long readChangesCheckpoint() {
+        if (changesCheckpointFile != null && Files.exists(changesCheckpointFile)) {
+            try {
+                return Long.parseLong(new String(Files.readAllBytes(changesCheckpointFile), StandardCharsets.UTF_8).trim());
+            } catch (IOException | NumberFormatException e) {
+                logger.warn("Cannot read TMDB changes checkpoint {}: {}", changesCheckpointFile, e.getMessage());
+            }
+        }
+        return 0;
+    }
+
+    private void writeChangesCheckpoint(long checkpoint) {
+        if (changesCheckpointFile != null) {
+            try {
+                Files.createDirectories(changesCheckpointFile.getParent());
+                Files.write(changesCheckpointFile, Long.toString(checkpoint).getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                logger.warn("Cannot write TMDB changes checkpoint {}: {}", changesCheckpointFile, e.getMessage());
+            }
+        }
+    }
+
     /**
      * @param path path where to get children
      * @return list of paths as String
      */
     @Override
     public List<String> getChildren(String path) throws RepositoryException {
-        DateTime currentDate = new DateTime();
-        int yearLimit = currentDate.getYear();
-        int monthLimit = currentDate.getMonthOfYear() - 1;
+        long start = System.nanoTime();
+        try {
+            return loadChildren(path);
+        } finally {
+            metrics.time("provider.getChildren", start);
+        }
+    }
 
+    private List<String> loadChildren(String path) throws RepositoryException {
+        NodeKey key = NodeKey.parsePath(path);
+        if (key == null) {
+            return Collections.emptyList();
+        }
         List<String> r = new ArrayList<String>();
-
-        String[] splitPath = path.split("/");
         try {
-            if (splitPath.length == 0) {
-                r.addAll(ROOT_NODES);
-                return r;
-            } else if (splitPath[1].equals("movies")) {
-                switch (splitPath.length) {
-                    case 2:
-                        for (int i = 1900; i <= yearLimit; i++) {
-                            r.add(Integer.toString(i));
-                        }
-                        return r;
-                    case 3:
-                        if (splitPath[2].equals(Integer.toString(yearLimit))) {
-                            for (int i = 1; i <= monthLimit; i++) {
-                                r.add(StringUtils.leftPad(Integer.toString(i), 2, "0"));
-                            }
-                        } else {
-                            for (int i = 1; i <= 12; i++) {
-                                r.add(StringUtils.leftPad(Integer.toString(i), 2, "0"));
-                            }
-                        }
-                        return r;
-                    case 4:
-                        final String date = splitPath[2] + "-" + splitPath[3];
-                        if (cache.get("movies-folder-" + date) != null) {
-                            r = (List<String>) cache.get("movies-folder-" + date).getObjectValue();
-                        } else {
-                            JSONObject o = queryTMDB(API_DISCOVER_MOVIE, "release_date.gte", date + "-01", "release_date.lte", splitPath[2] + "-" + splitPath[3] + "-31");
-                            JSONArray result = o.getJSONArray("results");
-                            for (int i = 0; i < result.length(); i++) {
-                                JSONObject movie = result.getJSONObject(i);
-                                r.add(movie.getString("id"));
-                                cache.put(new Element("movie-" + movie.getString("id"), movie.toString()));
-                            }
-                            cache.put(new Element("movies-folder-" + date, r));
-                        }
-                        return r;
-                    case 5:
-                        JSONObject o;
-                        if (cache.get("movies-credits-" + splitPath[4]) != null) {
-                            o = new JSONObject((String) cache.get("movies-credits-" + splitPath[4]).getObjectValue());
-                        } else {
-                            o = queryTMDB("/3/movie/" + splitPath[4] + "/credits");
-                            cache.put(new Element("movies-credits-" + splitPath[4], o.toString()));
-                        }
-                        if (o.has("cast")) {
-                            JSONArray result = o.getJSONArray("cast");
-                            for (int i = 0; i < result.length(); i++) {
-                                JSONObject cast = result.getJSONObject(i);
-                                r.add("cast_" + cast.getString("cast_id") + "_" + cast.getString("id"));
+            switch (key.getKind()) {
+                case ROOT:
+                    return getFolderChildren().getRoot();
+                case FOLDER:
+                    if (key.getRoot().equals(NodeKey.MOVIES)) {
+                        return getFolderChildren().getYears();
+                    } else if (key.getRoot().equals(NodeKey.LISTS)) {
+                        return getOrLoad("lists", List.class, () -> {
+                            listsGeneration.incrementAndGet();
+                            List<String> ids = new ArrayList<String>();
+                            for (MovieList list : getAccountLists()) {
+                                ids.add(list.getId());
+                                cache.put("list-" + list.getId(), list);
                             }
-                        }
-                        if (o.has("crew")) {
-                            JSONArray result = o.getJSONArray("crew");
-                            for (int i = 0; i < result.length(); i++) {
-                                JSONObject crew = result.getJSONObject(i);
-                                if (!r.contains("crew_" + crew.getString("id"))) {
-                                    r.add("crew_" + crew.getString("job") + "_" + crew.getString("id"));
-                                }
-                            }
-                        }
-                        return r;
-                }
-            } else if (splitPath[1].equals("lists")) {
-                switch (splitPath.length) {
-                    case 2:
-                        if (cache.get("lists") != null) {
-                            r = (List<String>) cache.get("lists").getObjectValue();
-                        } else {
-                            JSONObject o = queryTMDB("/3/account/" + getAccountId() + "/lists", "session_id", getSessionId());
-                            JSONArray result = o.getJSONArray("results");
-                            for (int i = 0; i < result.length(); i++) {
-                                JSONObject list = result.getJSONObject(i);
-                                r.add(list.getString("id"));
-                                cache.put(new Element("list-" + list.getString("id"), list.toString()));
-                            }
-                            cache.put(new Element("lists", r));
-                        }
-                        return r;
-                    case 3:
-                        JSONObject list;
-                        if (cache.get("fulllist-" + splitPath[2]) != null) {
-                            list = new JSONObject((String) cache.get("fulllist-" + splitPath[2]).getObjectValue());
-                        } else {
-                            list = queryTMDB("/3/list/" + splitPath[2]);
-                            cache.put(new Element("fulllist-" + splitPath[2], list.toString()));
-                        }
-                        JSONArray result = list.getJSONArray("items");
-                        for (int i = 0; i < Math.min(result.length(), 20); i++) {
-                            JSONObject movie = result.getJSONObject(i);
-                            r.add(movie.getString("id"));
-                            cache.put(new Element("movieref-" + movie.getString("id"), movie.toString()));
-                        }
-                        return r;
-                }
-            } else if (splitPath[1].equals("persons")) {
-                switch (splitPath.length) {
-                    case 2:
-                        return r;
-                }
+                            return ids;
+                        });
+                    }
+                    return r;
+                case YEAR:
+                    return getFolderChildren().getMonths(key.getYear());
+                case MONTH:
+                    return Lists.transform(getMonthMovies(key.getYear() + "-" + key.getMonth()), Movie::getId);
+                case MOVIE:
+                    r.addAll(getCreditsByName(getCredits(key.getMovieId())).keySet());
+                    return r;
+                case LIST:
+                    List<String> movieIds = getFullList(key.getListId()).getMovieIds();
+                    r.addAll(movieIds.subList(0, Math.min(movieIds.size(), 20)));
+                    return r;
+                default:
             }
         } catch (JSONException e) {
-            e.printStackTrace();
+            throw new RepositoryException(e);
         }
 
         return Collections.emptyList();
     }
 
+    /**
+     * @return the children of the root, year and month folders, computed again when the month changes
+     */
+    private FolderChildren getFolderChildren() {
+        FolderChildren children = folderChildren;
+        if (children == null || children.isExpired()) {
+            children = new FolderChildren(new ArrayList<String>(ROOT_NODES), new DateTime());
+            folderChildren = children;
+        }
+        return children;
+    }
+
+    /**
+     * Builds all the children of a node at once. Movie credits are built from a single parse of the credits, and the
+     * movies of a month folder from its first {@value #MAX_BATCH_MONTH_PAGES} discover pages, fetched concurrently : the
+     * movies after them are still listed by {@link #getChildren(String)} and reachable by their paths.
+     *
+     * @param path path where to get children
+     * @return list of children
+     */
+    @Override
+    public List<ExternalData> getChildrenNodes(String path) throws RepositoryException {
+        long start = System.nanoTime();
+        try {
+            return loadChildrenNodes(path);
+        } finally {
+            metrics.time("provider.getChildrenNodes", start);
+        }
+    }
+
+    private List<ExternalData> loadChildrenNodes(String path) throws RepositoryException {
+        NodeKey key = NodeKey.parsePath(path);
+        if (key == null) {
+            return Collections.emptyList();
+        }
+        switch (key.getKind()) {
+            case MONTH:
+                ImageConfiguration configuration = getConfigurationQuietly();
+                List<ExternalData> movies = new ArrayList<ExternalData>();
+                for (Movie movie : getMonthMovies(key.getYear() + "-" + key.getMonth(), MAX_BATCH_MONTH_PAGES)) {
+                    movies.add(toMovieData("movie-" + movie.getId(), path + "/" + movie.getId(), movie, configuration));
+                }
+                return movies;
+            case MOVIE:
+                String movieId = key.getMovieId();
+                Credits credits = getCredits(movieId);
+                ImageConfiguration creditsConfiguration = getConfigurationQuietly();
+                List<ExternalData> children = new ArrayList<ExternalData>();
+                for (Credits.Credit credit : getCreditsByName(credits).values()) {
+                    children.add(toCreditData(movieId, path, credit, creditsConfiguration));
+                }
+                return children;
+            case LIST:
+                List<ExternalData> references = new ArrayList<ExternalData>();
+                for (String referencedMovieId : getChildren(path)) {
+                    references.add(toMovieRefData(key.getListId(), referencedMovieId));
+                }
+                return references;
+            default:
+        }
+
+        // Folders and lists are built from their names, which are already known or cached by getChildren
+        List<ExternalData> children = new ArrayList<ExternalData>();
+        for (String child : getChildren(path)) {
+            children.add(getItemByPath(path.endsWith("/") ? path + child : path + "/" + child));
+        }
+        return children;
+    }
+
     /**
      * identifier is unique for an ExternalData
      *
@@ -306,284 +942,495 @@ public class TMDBDataSource implements ExternalDataSource, ExternalDataSource.La
      */
     @Override
     public ExternalData getItemByIdentifier(String identifier) throws ItemNotFoundException {
+        long start = System.nanoTime();
         try {
-            if (identifier.equals("root")) {
-                return new ExternalData(identifier, "/", "jnt:contentFolder", new HashMap<String, String[]>());
-            }
-            if (identifier.contains("-rootfolder")) {
-                final String s = StringUtils.substringBefore(identifier, "-rootfolder");
-                if (ROOT_NODES.contains(s)) {
-                    return new ExternalData(identifier, "/" + s, "jnt:contentFolder", new HashMap<String, String[]>());
-                }
-            } else if (identifier.contains("-folder-")) {
-                final String s = StringUtils.substringBefore(identifier, "-folder-");
-                final String date = StringUtils.substringAfter(identifier, "-folder-");
-                if (ROOT_NODES.contains(s) && (YEAR_PATTERN.matcher(date).matches() || DATE_PATTERN.matcher(date).matches())) {
-                    return new ExternalData(identifier, "/" + s + "/" + date, "jnt:contentFolder", new HashMap<String, String[]>());
-                }
-            } else if (identifier.startsWith("movie-")) {
-                String movieId = StringUtils.substringAfter(identifier, "movie-");
-                try {
-                    Integer.parseInt(movieId);
-                } catch (NumberFormatException e) {
-                    throw new ItemNotFoundException(identifier);
-                }
-                return getMovieData(identifier, movieId);
-            } else if (identifier.startsWith("moviecredits-")) {
-                String movieId = StringUtils.substringAfter(identifier, "moviecredits-");
-                String creditsId = StringUtils.substringAfter(movieId, "-");
-                movieId = StringUtils.substringBefore(movieId, "-");
-
-                ExternalData movie = getItemByIdentifier("movie-" + movieId);
-
-                JSONObject o;
-                if (cache.get("movies-credits-" + movieId) != null) {
-                    o = new JSONObject((String) cache.get("movies-credits-" + movieId).getObjectValue());
-                } else {
-                    o = queryTMDB("/3/movie/" + movieId + "/credits");
-                    cache.put(new Element("movies-credits-" + movieId, o.toString()));
-                }
+            return loadItemByIdentifier(identifier);
+        } finally {
+            metrics.time("provider.getItemByIdentifier", start);
+        }
+    }
 
-                Map<String, String[]> properties = new HashMap<String, String[]>();
-
-                JSONObject configuration = getConfiguration();
-                String baseUrl = configuration.getJSONObject("images").getString("base_url");
-
-                JSONObject credit = null;
-                ExternalData data = null;
-                if (creditsId.startsWith("crew_")) {
-                    String id = StringUtils.substringAfter(creditsId, "crew_");
-                    String job = StringUtils.substringBefore(id, "_");
-                    id = StringUtils.substringAfter(id, "_");
-                    JSONArray a = o.getJSONArray("crew");
-                    for (int i = 0; i < a.length(); i++) {
-                        JSONObject crew = a.getJSONObject(i);
-                        if (crew.getString("id").equals(id) && crew.getString("job").equals(job)) {
-                            data = new ExternalData(identifier, movie.getPath() + "/" + creditsId, "jnt:crew", properties);
-                            credit = crew;
-                            if (credit.getString("department") != null)
-                                properties.put("department", new String[]{credit.getString("department")});
-                            if (credit.getString("job") != null)
-                                properties.put("job", new String[]{credit.getString("job")});
-                            if (credit.getString("id") != null)
-                                properties.put("person", new String[]{"person-" + credit.getString("id")});
-                            break;
-                        }
+    private ExternalData loadItemByIdentifier(String identifier) throws ItemNotFoundException {
+        NodeKey key = NodeKey.parseIdentifier(identifier);
+        if (key == null) {
+            throw new ItemNotFoundException(identifier);
+        }
+        return loadItem(key, identifier);
+    }
+
+    /**
+     * @param identifier the identifier of the node, as returned by {@link NodeKey#getIdentifier()}
+     */
+    private ExternalData loadItem(NodeKey key, String identifier) throws ItemNotFoundException {
+        try {
+            switch (key.getKind()) {
+                case ROOT:
+                case FOLDER:
+                case YEAR:
+                case MONTH:
+                    return new ExternalData(identifier, key.getPath(), "jnt:contentFolder", new HashMap<String, String[]>());
+                case MOVIE:
+                    return getMovieData(identifier, key.getMovieId());
+                case CREDIT:
+                    String movieId = key.getMovieId();
+                    ExternalData movie = getMovieData("movie-" + movieId, movieId);
+                    Credits.Credit credit = getCreditsByName(getCredits(movieId)).get(key.getCreditName());
+                    if (credit != null) {
+                        return toCreditData(movieId, movie.getPath(), credit, getConfiguration());
                     }
-                } else if (creditsId.startsWith("cast_")) {
-                    String id = StringUtils.substringAfter(creditsId, "cast_");
-                    String castId = StringUtils.substringBefore(id, "_");
-                    id = StringUtils.substringAfter(id, "_");
-                    JSONArray a = o.getJSONArray("cast");
-                    for (int i = 0; i < a.length(); i++) {
-                        JSONObject cast = a.getJSONObject(i);
-                        if (cast.getString("id").equals(id) && cast.getString("cast_id").equals(castId)) {
-                            data = new ExternalData(identifier, movie.getPath() + "/" + creditsId, "jnt:cast", properties);
-                            credit = cast;
-                            if (credit.getString("character") != null)
-                                properties.put("character", new String[]{credit.getString("character")});
-                            if (credit.getString("order") != null)
-                                properties.put("order", new String[]{credit.getString("order")});
-                            if (credit.getString("cast_id") != null)
-                                properties.put("cast_id", new String[]{credit.getString("cast_id")});
-                            if (credit.getString("id") != null)
-                                properties.put("person", new String[]{"person-" + credit.getString("id")});
-                            break;
-                        }
+                    break;
+                case LIST:
+                    MovieList list = getCached("list-" + key.getListId(), MovieList.class);
+                    if (list == null) {
+                        list = getFullList(key.getListId());
                     }
-                }
-                if (credit != null) {
-                    if (credit.getString("name") != null)
-                        properties.put("name", new String[]{credit.getString("name")});
-                    if (!StringUtils.isEmpty(credit.getString("profile_path")) && !credit.getString("profile_path").equals("null"))
-                        properties.put("profile", new String[]{baseUrl + configuration.getJSONObject("images").getJSONArray("profile_sizes").get(1) + credit.getString("profile_path")});
+                    return toListData(list, getConfiguration());
+                case MOVIE_REF:
+                    return toMovieRefData(key.getListId(), key.getMovieId());
+                case PERSON:
+                    return getPersonData(identifier, key.getPersonId());
+                default:
+            }
+        } catch (Exception e) {
+            throw new ItemNotFoundException(e);
+        }
 
+        throw new ItemNotFoundException(identifier);
+    }
 
-                    return data;
-                }
-            } else if (identifier.startsWith("lists-")) {
-                String listId = StringUtils.substringAfter(identifier, "lists-");
-                if (!Pattern.compile("[a-z0-9]+").matcher(listId).matches()) {
-                    throw new ItemNotFoundException(identifier);
-                }
+    private ExternalData getPersonData(String identifier, String personId) throws RepositoryException, JSONException {
+        Person person = getOrLoad("person-" + personId, Person.class, () -> {
+            Person loaded = queryTMDB(TMDBResponseDecoder::readPerson, "/3/person/" + personId);
+            if (loaded.getId() == null) {
+                throw new TMDBNotFoundException("/3/person/" + personId);
+            }
+            return loaded;
+        });
+
+        ImageConfiguration configuration = getConfiguration();
+
+        Map<String, String[]> properties = new HashMap<String, String[]>();
+        if (person.getName() != null)
+            properties.put("name", new String[]{person.getName()});
+        if (person.getBiography() != null)
+            properties.put("biography", new String[]{person.getBiography()});
+        if (!StringUtils.isEmpty(person.getHomepage()))
+            properties.put("homepage", new String[]{person.getHomepage()});
+        if (!StringUtils.isEmpty(person.getProfilePath()))
+            properties.put("profile", new String[]{configuration.getProfileUrl(person.getProfilePath(), 2)});
+        if (!StringUtils.isEmpty(person.getBirthday()))
+            properties.put("birthday", new String[]{person.getBirthday() + "T00:00:00.000+00:00"});
+        if (!StringUtils.isEmpty(person.getDeathday()))
+            properties.put("deathday", new String[]{person.getDeathday() + "T00:00:00.000+00:00"});
+
+        return new ExternalData(identifier, "/persons/" + personId, "jnt:moviePerson", properties);
+    }
 
-                JSONObject list;
+    private ExternalData getMovieData(String identifier, String movieId) throws RepositoryException {
+        ExternalData data = buildMovieData(identifier, movieId);
+        indexMovie(data, movieId);
+        if (prefetchEnabled && cacheWarmer != null && getFresh("movies-credits-" + movieId, Credits.class) == null) {
+            // The credits are the children of the movie node, and come with the full movie used by its lazy properties
+            cacheWarmer.prefetch("movies-credits-" + movieId, () -> getCredits(movieId));
+        }
+        return data;
+    }
 
-                if (cache.get("list-" + listId) != null) {
-                    list = new JSONObject((String) cache.get("list-" + listId).getObjectValue());
-                } else if (cache.get("fulllist-" + listId) != null) {
-                    list = new JSONObject((String) cache.get("fulllist-" + listId).getObjectValue());
-                } else {
-                    list = queryTMDB("/3/list/" + listId);
-                    cache.put(new Element("fulllist-" + listId, list.toString()));
-                }
+    private ExternalData buildMovieData(String identifier, String movieId) throws RepositoryException {
+        Movie movie = getCached("movie-" + movieId, Movie.class);
+        if (movie == null) {
+            // No node is built if the movie cannot be fetched, instead of an empty one
+            movie = getFullMovie(movieId);
+        }
+        return toMovieData(identifier, getPathForMovie(movie), movie, getConfigurationQuietly());
+    }
 
-                JSONObject configuration = getConfiguration();
-                String baseUrl = configuration.getJSONObject("images").getString("base_url");
-
-                Map<String, String[]> properties = new HashMap<String, String[]>();
-                if (list.getString("name") != null)
-                    properties.put("jcr:title", new String[]{list.getString("name")});
-                if (list.getString("description") != null)
-                    properties.put("jcr:description", new String[]{list.getString("description")});
-                if (!StringUtils.isEmpty(list.getString("poster_path")) && !list.getString("poster_path").equals("null"))
-                    properties.put("poster_path", new String[]{baseUrl + configuration.getJSONObject("images").getJSONArray("poster_sizes").get(1) + list.getString("poster_path")});
-
-                ExternalData data = new ExternalData(identifier, "/lists/" + listId, "jnt:moviesList", properties);
-                return data;
-            } else if (identifier.startsWith("movieref-")) {
-                String movieId = StringUtils.substringAfter(identifier, "movieref-");
-                String listId = StringUtils.substringBefore(movieId, "-");
-                movieId = StringUtils.substringAfter(movieId, "-");
-                try {
-                    Integer.parseInt(movieId);
-                } catch (NumberFormatException e) {
-                    throw new ItemNotFoundException(identifier);
-                }
-                if (!Pattern.compile("[a-z0-9]+").matcher(listId).matches()) {
-                    throw new ItemNotFoundException(identifier);
-                }
+    private ExternalData toMovieData(String identifier, String path, Movie movie, ImageConfiguration configuration) {
+        Map<String, String[]> properties = new HashMap<String, String[]>();
+        if (movie.getBackdropPath() != null && configuration != null)
+            properties.put("backdrop_path", new String[]{configuration.getBackdropUrl(movie.getBackdropPath())});
+        if (!StringUtils.isEmpty(movie.getReleaseDate())) {
+            properties.put("release_date", new String[]{movie.getReleaseDate() + "T00:00:00.000+00:00"});
+        }
+        if (movie.getAdult() != null) {
+            properties.put("adult", new String[]{movie.getAdult().toString()});
+        }
+        if (movie.getVoteAverage() != null) {
+            properties.put("vote_average", new String[]{movie.getVoteAverage().toString()});
+        }
+        if (movie.getVoteCount() != null) {
+            properties.put("vote_count", new String[]{movie.getVoteCount().toString()});
+        }
+        if (movie.getPopularity() != null) {
+            properties.put("popularity", new String[]{movie.getPopularity().toString()});
+        }
+        if (!movie.getGenres().isEmpty()) {
+            properties.put("j:tagList", movie.getGenres().toArray(new String[0]));
+        }
+        //Get keywords
+        if (!movie.getKeywords().isEmpty()) {
+            properties.put("j:keywords", movie.getKeywords().toArray(new String[0]));
+        }
+        ExternalData data = new ExternalData(identifier, path, "jnt:movie", properties);
+
+        Set<String> lazy = new HashSet<String>(LAZY_PROPERTIES);
+        if (!movie.isFull()) {
+            // Search and discover results have no genre names nor keywords, they come with the full movie
+            lazy.addAll(LAZY_FULL_MOVIE_PROPERTIES);
+        }
+        data.setLazyProperties(lazy);
+
+        Map<String, Set<String>> lazy18 = new HashMap<String, Set<String>>();
+        for (String lang : LANGUAGES) {
+            lazy18.put(lang, new HashSet<String>(LAZY_I18N_PROPERTIES));
+        }
+        data.setLazyI18nProperties(lazy18);
+        return data;
+    }
+
+    private void indexMovie(ExternalData data, String movieId) {
+        if (indexingQueue != null && cache.get("indexedfullmovie-" + movieId) == null) {
+            indexingQueue.offer(movieId, data);
+        }
+    }
+
+    /**
+     * Sends a batch of movies to the indexer, and marks them as indexed.
+     */
+    private void sendIndexingBatch(Map<String, ExternalData> movies) throws RepositoryException {
+        sendAddedNodes(new ArrayList<ExternalData>(movies.values()));
+        for (String movieId : movies.keySet()) {
+            cache.put("indexedfullmovie-" + movieId, "indexed");
+        }
+    }
+
+    private ExternalData toListData(MovieList list, ImageConfiguration configuration) {
+        Map<String, String[]> properties = new HashMap<String, String[]>();
+        if (list.getName() != null)
+            properties.put("jcr:title", new String[]{list.getName()});
+        if (list.getDescription() != null)
+            properties.put("jcr:description", new String[]{list.getDescription()});
+        if (!StringUtils.isEmpty(list.getPosterPath()) && configuration != null)
+            properties.put("poster_path", new String[]{configuration.getPosterUrl(list.getPosterPath())});
+
+        return new ExternalData("lists-" + list.getId(), "/lists/" + list.getId(), "jnt:moviesList", properties);
+    }
+
+    private ExternalData toMovieRefData(String listId, String movieId) {
+        Map<String, String[]> properties = new HashMap<String, String[]>();
+        properties.put("j:node", new String[]{"movie-" + movieId});
+        return new ExternalData("movieref-" + listId + "-" + movieId, "/lists/" + listId + "/" + movieId, "jnt:contentReference", properties);
+    }
+
+    private ExternalData toCreditData(String movieId, String moviePath, Credits.Credit credit, ImageConfiguration configuration) {
+        Map<String, String[]> properties = new HashMap<String, String[]>();
+        String type;
+        if (credit instanceof Credits.Crew) {
+            Credits.Crew crew = (Credits.Crew) credit;
+            type = "jnt:crew";
+            if (crew.getDepartment() != null)
+                properties.put("department", new String[]{crew.getDepartment()});
+            properties.put("job", new String[]{crew.getJob()});
+        } else {
+            Credits.Cast cast = (Credits.Cast) credit;
+            type = "jnt:cast";
+            if (cast.getCharacter() != null)
+                properties.put("character", new String[]{cast.getCharacter()});
+            if (cast.getOrder() != null)
+                properties.put("order", new String[]{cast.getOrder()});
+            properties.put("cast_id", new String[]{cast.getCastId()});
+        }
+        properties.put("person", new String[]{"person-" + credit.getPersonId()});
+        if (credit.getName() != null)
+            properties.put("name", new String[]{credit.getName()});
+        if (!StringUtils.isEmpty(credit.getProfilePath()) && configuration != null)
+            properties.put("profile", new String[]{configuration.getProfileUrl(credit.getProfilePath(), 1)});
+        return new ExternalData("moviecredits-" + movieId + "-" + credit.getNodeName(), moviePath + "/" + credit.getNodeName(), type, properties);
+    }
+
+    /**
+     * @return the credits of a movie keyed by node name, a person holding the same job twice only appears once
+     */
+    private static Map<String, Credits.Credit> getCreditsByName(Credits credits) {
+        Map<String, Credits.Credit> byName = new LinkedHashMap<String, Credits.Credit>();
+        for (Credits.Cast cast : credits.getCast()) {
+            byName.putIfAbsent(cast.getNodeName(), cast);
+        }
+        for (Credits.Crew crew : credits.getCrew()) {
+            byName.putIfAbsent(crew.getNodeName(), crew);
+        }
+        return byName;
+    }
+
+    private String getPathForMovie(Movie movie) {
+        return getPathForMovie(movie.getId(), movie.getReleaseDate());
+    }
+
+    /**
+     * @return the path of a movie, or <code>null</code> if it has no release date
+     */
+    private static String getPathForMovie(String movieId, String releaseDate) {
+        if (movieId == null || StringUtils.isEmpty(releaseDate)) {
+            return null;
+        }
+        return "/movies/" + StringUtils.substringBeforeLast(releaseDate, "-").replace("-", "/") + "/" + movieId;
+    }
+
+    /**
+     * Fetches a movie with its keywords, credits and translations in a single request, and caches the credits and the
+     * movie localized in every supported language along with it.
+     */
+    private Movie fetchMovie(String movieId) throws RepositoryException {
+        TMDBResponseDecoder.MovieResponse response = queryTMDB(TMDBResponseDecoder::readMovieResponse, API_MOVIE + movieId,
+                "language", DEFAULT_LANGUAGE, "append_to_response", API_MOVIE_APPENDED_RESPONSES);
+        Movie movie = response.getMovie();
+        if (movie.getId() == null) {
+            throw new TMDBNotFoundException(API_MOVIE + movieId);
+        }
+        if (response.getCredits() != null) {
+            cache.put("movies-credits-" + movieId, response.getCredits());
+        }
+        for (String lang : LANGUAGES) {
+            if (!lang.equals(DEFAULT_LANGUAGE)) {
+                cache.put("fullmovie-" + lang + "-" + movieId, movie.translate(lang));
+            }
+        }
+        return movie;
+    }
+
+    /**
+     * Returns all the movies released in a month. Only the first page is fetched here, the next ones are fetched and
+     * cached one by one while the list is read.
+     * <p>
+     * Movies are sorted by release date, which unlike their popularity does not change between the fetches of two
+     * pages. The next pages are also cached under the number of movies of the month, read from the first page : when
+     * movies are added to the month the following ones shift to the next pages, which are then all fetched again
+     * rather than mixed with the pages cached before.
+     *
+     * @param date the month, as <code>yyyy-MM</code>
+     */
+    private List<Movie> getMonthMovies(String date) throws RepositoryException {
+        MoviePage firstPage = getMonthPage(date, 1);
+        int size = Math.min(firstPage.getTotalResults(), Math.min(firstPage.getTotalPages(), MAX_TMDB_PAGES) * PAGE_SIZE);
+        String version = String.valueOf(firstPage.getTotalResults());
+        return new PagedList<Movie>(firstPage.getResults(), page -> getMonthPage(date, version, page).getResults(), PAGE_SIZE, size,
+                fetchExecutor, prefetchPages);
+    }
 
-                Map<String, String[]> properties = new HashMap<String, String[]>();
-                properties.put("j:node", new String[]{"movie-" + movieId});
-                ExternalData data = new ExternalData(identifier, "/lists/" + listId + "/" + movieId, "jnt:contentReference", properties);
-                return data;
-            } else if (identifier.startsWith("person-")) {
-                String personId = StringUtils.substringAfter(identifier, "person-");
+    /**
+     * @return the movies of the first pages of a month, whose pages are fetched concurrently. The movies are cut at the
+     * first page which cannot be fetched or is not full.
+     */
+    private List<Movie> getMonthMovies(String date, int maxPages) throws RepositoryException {
+        MoviePage firstPage = getMonthPage(date, 1);
+        String version = String.valueOf(firstPage.getTotalResults());
+        List<InFlightRequests.Loader<MoviePage>> loaders = new ArrayList<InFlightRequests.Loader<MoviePage>>();
+        for (int i = 2; i <= Math.min(firstPage.getTotalPages(), maxPages); i++) {
+            final int page = i;
+            loaders.add(() -> {
                 try {
-                    Integer.parseInt(personId);
-                } catch (NumberFormatException e) {
-                    throw new ItemNotFoundException(identifier);
-                }
-                JSONObject person;
-                if (cache.get("person-" + personId) != null) {
-                    person = new JSONObject((String) cache.get("person-" + personId).getObjectValue());
-                } else {
-                    person = queryTMDB("/3/person/" + personId);
-                    cache.put(new Element("person-" + personId, person.toString()));
+                    return getMonthPage(date, version, page);
+                } catch (RepositoryException e) {
+                    logger.warn("Cannot load page {} of the movies of {}, the folder is cut to {} movies", page, date, (page - 1) * PAGE_SIZE, e);
+                    return null;
                 }
+            });
+        }
+        List<Movie> movies = new ArrayList<Movie>(firstPage.getResults());
+        for (MoviePage page : fetchAll(loaders)) {
+            if (page == null || movies.size() % PAGE_SIZE != 0) {
+                break;
+            }
+            movies.addAll(page.getResults());
+        }
+        return movies;
+    }
+
+    private MoviePage getMonthPage(String date, int page) throws RepositoryException {
+        return getMonthPage(date, null, page);
+    }
+
+    /**
+     * @param version the number of movies of the month when its first page was read, <code>null</code> for the first
+     *                page itself
+     */
+    private MoviePage getMonthPage(String date, String version, int page) throws RepositoryException {
+        String key = "movies-folder-" + date + "-" + (version != null ? version + "-" : "") + page;
+        return getOrLoad(key, MoviePage.class, () -> {
+            MoviePage moviePage = queryTMDB(TMDBResponseDecoder::readMoviePage, API_DISCOVER_MOVIE,
+                    "primary_release_date.gte", date + "-01", "primary_release_date.lte", date + "-31",
+                    "sort_by", "primary_release_date.asc", "page", String.valueOf(page));
+            for (Movie movie : moviePage.getResults()) {
+                cache.put("movie-" + movie.getId(), movie);
+            }
+            return moviePage;
+        });
+    }
+
+    private MoviePage getPopularPage(int page) throws RepositoryException {
+        return getOrLoad("movies-discover-popular-" + page, MoviePage.class,
+                () -> queryTMDB(TMDBResponseDecoder::readMoviePage, API_DISCOVER_MOVIE, "sort_by", "popularity.desc", "page", String.valueOf(page)));
+    }
+
+    private Movie getFullMovie(String movieId) throws RepositoryException {
+        return getOrLoad("fullmovie-" + DEFAULT_LANGUAGE + "-" + movieId, Movie.class, () -> fetchMovie(movieId));
+    }
+
+    private Movie getLocalizedMovie(String movieId, String lang) throws RepositoryException {
+        if (lang.equals(DEFAULT_LANGUAGE)) {
+            return getFullMovie(movieId);
+        }
+        return getOrLoad("fullmovie-" + lang + "-" + movieId, Movie.class, () -> getFullMovie(movieId).translate(lang));
+    }
+
+    private Credits getCredits(String movieId) throws RepositoryException {
+        return getOrLoad("movies-credits-" + movieId, Credits.class, () -> {
+            // Credits are cached when the movie is fetched, only query them if the movie was already in cache
+            getFullMovie(movieId);
+            Credits credits = getFresh("movies-credits-" + movieId, Credits.class);
+            return credits != null ? credits : queryTMDB(TMDBResponseDecoder::readCredits, API_MOVIE + movieId + "/credits");
+        });
+    }
+
+    private MovieList getFullList(String listId) throws RepositoryException, JSONException {
+        return getOrLoad("fulllist-" + listId, MovieList.class, () -> {
+            listsGeneration.incrementAndGet();
+            MovieList list = queryTMDB(TMDBResponseDecoder::readList, "/3/list/" + listId);
+            if (list.getId() == null) {
+                throw new TMDBNotFoundException("/3/list/" + listId);
+            }
+            return list;
+        });
+    }
+
+    private List<MovieList> getAccountLists() throws RepositoryException, JSONException {
+        return queryTMDB(TMDBResponseDecoder::readListPage, "/3/account/" + getAccountId() + "/lists", "session_id", getSessionId());
+    }
+
+    private PersonCredits getPersonCredits(String personId) throws RepositoryException, JSONException {
+        return getOrLoad("movie_credits_query_" + personId, PersonCredits.class,
+                () -> queryTMDB(TMDBResponseDecoder::readPersonCredits, "/3/person/" + personId + "/movie_credits"));
+    }
+
+    /**
+     * Returns the value cached under <code>key</code>, as long as it has the expected type.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T getCached(String key, Class<T> type) {
+        Object value = cache.get(key);
+        if (type.isInstance(value)) {
+            return (T) value;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the value cached under <code>key</code> if it has not expired, as long as it has the expected type.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T getFresh(String key, Class<T> type) {
+        TMDBCache.Entry entry = cache.getEntry(key);
+        if (entry != null && !entry.isStale() && type.isInstance(entry.getValue())) {
+            return (T) entry.getValue();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the value cached under <code>key</code>, or loads and caches it. Concurrent misses on the same key
+     * share a single load, so that only one request is sent to TMDB. A stale value is returned immediately, and
+     * refreshed in the background.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T getOrLoad(String key, Class<T> type, InFlightRequests.Loader<T> loader) throws RepositoryException {
+        TMDBCache.Entry entry = cache.getEntry(key);
+        if (entry != null && type.isInstance(entry.getValue())) {
+            if (entry.isStale()) {
+                refresh(key, loader);
+            }
+            // Entries read back from the disk after a restart are indexed on their first access
+            indexTitles(entry.getValue());
+            return (T) entry.getValue();
+        }
+        if (isNotFound(key)) {
+            throw new TMDBNotFoundException(key);
+        }
+        return inFlightRequests.load(key, () -> {
+            // The entry may have been cached by a load that completed since the first lookup
+            T loaded = getFresh(key, type);
+            if (loaded == null) {
+                loaded = loadOrMarkNotFound(key, loader);
+                cache.put(key, loaded);
+                indexTitles(loaded);
+            }
+            return loaded;
+        });
+    }
 
-                JSONObject configuration = getConfiguration();
-                String baseUrl = configuration.getJSONObject("images").getString("base_url");
-
-                Map<String, String[]> properties = new HashMap<String, String[]>();
-                if (person.getString("name") != null)
-                    properties.put("name", new String[]{person.getString("name")});
-                if (person.getString("biography") != null)
-                    properties.put("biography", new String[]{person.getString("biography")});
-                if (!StringUtils.isEmpty(person.getString("homepage")) && !person.getString("homepage").equals("null"))
-                    properties.put("homepage", new String[]{person.getString("homepage")});
-                if (!StringUtils.isEmpty(person.getString("profile_path")) && !person.getString("profile_path").equals("null"))
-                    properties.put("profile", new String[]{baseUrl + configuration.getJSONObject("images").getJSONArray("profile_sizes").get(2) + person.getString("profile_path")});
-                if (!StringUtils.isEmpty(person.getString("birthday")) && !person.getString("birthday").equals("null"))
-                    properties.put("birthday", new String[]{person.getString("birthday") + "T00:00:00.000+00:00"});
-                if (!StringUtils.isEmpty(person.getString("deathday")) && !person.getString("deathday").equals("null"))
-                    properties.put("deathday", new String[]{person.getString("deathday") + "T00:00:00.000+00:00"});
-
-                ExternalData data = new ExternalData(identifier, "/persons/" + personId, "jnt:moviePerson", properties);
-                return data;
+    /**
+     * Adds the titles of the movies of a cached value to the title index.
+     */
+    private void indexTitles(Object value) {
+        if (titleIndex == null) {
+            return;
+        }
+        if (value instanceof Movie) {
+            titleIndex.add((Movie) value, getPathForMovie((Movie) value));
+        } else if (value instanceof MoviePage) {
+            for (Movie movie : ((MoviePage) value).getResults()) {
+                titleIndex.add(movie, getPathForMovie(movie));
             }
-        } catch (Exception e) {
-            throw new ItemNotFoundException(e);
         }
-
-        throw new ItemNotFoundException(identifier);
     }
 
-    private ExternalData getMovieData(String identifier, String movieId) throws JSONException, RepositoryException {
-        JSONObject movie;
-
-        String lang = "en";
-        if (cache.get("movie-" + movieId) != null) {
-            movie = new JSONObject((String) cache.get("movie-" + movieId).getObjectValue());
-        } else if (cache.get("fullmovie-" + lang + "-" + movieId) != null) {
-            movie = new JSONObject((String) cache.get("fullmovie-" + lang + "-" + movieId).getObjectValue());
-        } else {
-            try {
-                movie = queryTMDB(API_MOVIE + movieId, "language", lang);
-                JSONObject keywords = queryTMDB(API_MOVIE + movieId + "/keywords");
-                movie.put("keywords", keywords.getJSONArray("keywords"));
-                cache.put(new Element("fullmovie-" + lang + "-" + movieId, movie.toString()));
-            } catch (RepositoryException | JSONException | IllegalArgumentException | IllegalStateException | CacheException e) {
-                logger.error("Error while getting movie", e);
-                movie = new JSONObject();
-            }
+    /**
+     * @return whether TMDB recently answered that the resource cached under <code>key</code> does not exist
+     */
+    private boolean isNotFound(String key) {
+        TMDBCache.Entry entry = cache.getEntry(NOT_FOUND_PREFIX + key);
+        if (entry != null && !entry.isStale()) {
+            notFoundHits.increment();
+            return true;
         }
+        return false;
+    }
 
-        Map<String, String[]> properties = null;
+    private <T> T loadOrMarkNotFound(String key, InFlightRequests.Loader<T> loader) throws RepositoryException, JSONException {
         try {
-            JSONObject configuration = getConfiguration();
-            String baseUrl = configuration.getJSONObject("images").getString("base_url");
-
-            properties = new HashMap<String, String[]>();
-            if (movie.has("backdrop_path") && !movie.getString("backdrop_path").equals("null"))
-                properties.put("backdrop_path", new String[]{baseUrl + configuration.getJSONObject("images").getJSONArray("backdrop_sizes").get(1) + movie.getString("backdrop_path")});
-            if (movie.has("release_date")) {
-                properties.put("release_date", new String[]{movie.getString("release_date") + "T00:00:00.000+00:00"});
-            }
-            if (movie.has("adult")) {
-                properties.put("adult", new String[]{movie.getString("adult")});
-            }
-            if (movie.has("vote_average")) {
-                properties.put("vote_average", new String[]{movie.getString("vote_average")});
-            }
-            if (movie.has("vote_count")) {
-                properties.put("vote_count", new String[]{movie.getString("vote_count")});
-            }
-            if (movie.has("popularity")) {
-                properties.put("popularity", new String[]{movie.getString("popularity")});
-            }
-            if (movie.has("genres")) {
-                JSONArray genres = movie.getJSONArray("genres");
-                String[] strings = new String[genres.length()];
-                for (int i = 0; i < genres.length(); i++) {
-                    JSONObject genre = genres.getJSONObject(i);
-                    strings[i] = genre.getString("name");
-                }
-                properties.put("j:tagList", strings);
-            }
-            //Get keywords
-            if (movie.has("keywords")) {
-                JSONArray keywordsArray = movie.getJSONArray("keywords");
-                String[] strings = new String[keywordsArray.length()];
-                for (int i = 0; i < keywordsArray.length(); i++) {
-                    JSONObject keywordsArrayJSONObject = keywordsArray.getJSONObject(i);
-                    strings[i] = keywordsArrayJSONObject.getString("name");
-                }
-                properties.put("j:keywords", strings);
-            }
-        } catch (JSONException | RepositoryException e) {
-            logger.error("Error while getting movie", e);
+            return loader.load();
+        } catch (TMDBNotFoundException e) {
+            cache.put(NOT_FOUND_PREFIX + key, Boolean.TRUE);
+            throw e;
         }
-        ExternalData data = new ExternalData(identifier, getPathForMovie(movie), "jnt:movie", properties);
-
-        data.setLazyProperties(new HashSet<String>(LAZY_PROPERTIES));
+    }
 
-        Map<String, Set<String>> lazy18 = new HashMap<String, Set<String>>();
-        lazy18.put("en", new HashSet<String>(LAZY_I18N_PROPERTIES));
-        lazy18.put("fr", new HashSet<String>(LAZY_I18N_PROPERTIES));
-        data.setLazyI18nProperties(lazy18);
-        if (cache.get("indexedfullmovie-" + movieId) == null) {
-            EventService eventService = BundleUtils.getOsgiService(EventService.class, null);
-            JCRStoreProvider jcrStoreProvider = JCRSessionFactory.getInstance().getProviders().get("TMDBProvider");
-            CompletableFuture.supplyAsync(() -> {
+    /**
+     * Reloads a stale entry in the background, unless it is already being refreshed or TMDB is unavailable.
+     */
+    private <T> void refresh(String key, InFlightRequests.Loader<T> loader) {
+        if (fetchExecutor == null || circuitBreaker.getState() == CircuitBreaker.State.OPEN || !refreshing.add(key)) {
+            return;
+        }
+        try {
+            fetchExecutor.execute(() -> {
                 try {
-                    eventService.sendAddedNodes(Arrays.asList(data), jcrStoreProvider);
-                    cache.put(new Element("indexedfullmovie-" + movieId, "indexed"));
+                    inFlightRequests.load(key, () -> {
+                        T loaded = loadOrMarkNotFound(key, loader);
+                        cache.put(key, loaded);
+                        indexTitles(loaded);
+                        return loaded;
+                    });
+                } catch (TMDBNotFoundException e) {
+                    cache.remove(key);
                 } catch (RepositoryException e) {
-                    e.printStackTrace();
+                    logger.warn("Cannot refresh {}, keeping the stale entry: {}", key, e.getMessage());
+                } finally {
+                    refreshing.remove(key);
                 }
-                return "eventSent";
             });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
         }
-        return data;
-    }
-
-    private String getPathForMovie(JSONObject movie) throws JSONException {
-        if (!movie.has("release_date") || StringUtils.isEmpty(movie.getString("release_date"))) {
-            return null;
-        }
-        return "/movies/" + StringUtils.substringBeforeLast(movie.getString("release_date"), "-").replace("-", "/") + "/" + movie.getString("id");
     }
 
     /**
@@ -595,47 +1442,18 @@ public class TMDBDataSource implements ExternalDataSource, ExternalDataSource.La
      */
     @Override
     public ExternalData getItemByPath(String path) throws PathNotFoundException {
-        String[] splitPath = path.split("/");
+        long start = System.nanoTime();
         try {
-            if (path.endsWith("j:acl")) {
+            NodeKey key = path.endsWith("j:acl") ? null : NodeKey.parsePath(path);
+            if (key == null) {
                 throw new PathNotFoundException(path);
             }
-            if (splitPath.length <= 1) {
-                return getItemByIdentifier("root");
-            } else if (splitPath[1].equals("movies")) {
-                switch (splitPath.length) {
-                    case 2:
-                        return getItemByIdentifier("movies-rootfolder");
-                    case 3:
-                        return getItemByIdentifier("movies-folder-" + splitPath[2]);
-                    case 4:
-                        return getItemByIdentifier("movies-folder-" + splitPath[2] + "/" + splitPath[3]);
-                    case 5:
-                        return getItemByIdentifier("movie-" + splitPath[4]);
-                    case 6:
-                        return getItemByIdentifier("moviecredits-" + splitPath[4] + "-" + splitPath[5]);
-                }
-            } else if (splitPath[1].equals("lists")) {
-                switch (splitPath.length) {
-                    case 2:
-                        return getItemByIdentifier("lists-rootfolder");
-                    case 3:
-                        return getItemByIdentifier("lists-" + splitPath[2]);
-                    case 4:
-                        return getItemByIdentifier("movieref-" + splitPath[2] + "-" + splitPath[3]);
-                }
-            } else if (splitPath[1].equals("persons")) {
-                switch (splitPath.length) {
-                    case 2:
-                        return getItemByIdentifier("persons-rootfolder");
-                    case 3:
-                        return getItemByIdentifier("person-" + splitPath[2]);
-                }
-            }
+            return loadItem(key, key.getIdentifier());
         } catch (ItemNotFoundException e) {
             throw new PathNotFoundException(e);
+        } finally {
+            metrics.time("provider.getItemByPath", start);
         }
-        throw new PathNotFoundException();
     }
 
     /**
@@ -677,14 +1495,74 @@ public class TMDBDataSource implements ExternalDataSource, ExternalDataSource.La
      */
     @Override
     public boolean itemExists(String path) {
-        return false;
+        NodeKey key = NodeKey.parsePath(path);
+        if (key == null) {
+            return false;
+        }
+        switch (key.getKind()) {
+            case ROOT:
+            case FOLDER:
+                return true;
+            case YEAR:
+                return getFolderChildren().hasYear(key.getYear());
+            case MONTH:
+                return getFolderChildren().hasMonth(key.getYear(), key.getMonth());
+            default:
+        }
+        if (cache == null) {
+            return false;
+        }
+        // Resources are only looked up in the cache, a resource that is not cached is not known to exist
+        switch (key.getKind()) {
+            case MOVIE:
+                return key.getPath().equals(getCachedMoviePath(key.getMovieId()));
+            case CREDIT:
+                Credits credits = getCached("movies-credits-" + key.getMovieId(), Credits.class);
+                String moviePath = getCachedMoviePath(key.getMovieId());
+                return credits != null && moviePath != null && key.getPath().equals(moviePath + "/" + key.getCreditName())
+                        && getCreditsByName(credits).containsKey(key.getCreditName());
+            case LIST:
+                return getCached("list-" + key.getListId(), MovieList.class) != null
+                        || getCached("fulllist-" + key.getListId(), MovieList.class) != null;
+            case MOVIE_REF:
+                MovieList list = getCached("fulllist-" + key.getListId(), MovieList.class);
+                // Only the first movies of a list are its children
+                return list != null && list.getMovieIds().subList(0, Math.min(list.getMovieIds().size(), 20)).contains(key.getMovieId());
+            case PERSON:
+                return getCached("person-" + key.getPersonId(), Person.class) != null;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return the path of a cached movie, or <code>null</code> if it is not cached or has no node
+     */
+    private String getCachedMoviePath(String movieId) {
+        Movie movie = getCached("movie-" + movieId, Movie.class);
+        if (movie == null) {
+            movie = getCached("fullmovie-" + DEFAULT_LANGUAGE + "-" + movieId, Movie.class);
+        }
+        return movie != null ? getPathForMovie(movie) : null;
     }
 
     private JSONObject queryTMDB(String path, String... params) throws RepositoryException {
+        return executeQuery(entity -> new JSONObject(EntityUtils.toString(entity)), path, params);
+    }
+
+    /**
+     * Queries TMDB and decodes the response while it is streamed.
+     */
+    private <T> T queryTMDB(TMDBResponseDecoder.Reader<T> reader, String path, String... params) throws RepositoryException {
+        return executeQuery(entity -> TMDBResponseDecoder.decode(entity.getContent(), reader), path, params);
+    }
+
+    private <T> T executeQuery(EntityReader<T> reader, String path, String... params) throws RepositoryException {
         try {
             URIBuilder builder = new URIBuilder()
-                    .setScheme("http")
-                    .setHost(API_URL)
+                    .setScheme(apiScheme)
+                    .setHost(apiHost)
+                    .setPort(apiPort)
                     .setPath(path)
                     .setParameter(API_KEY, apiKeyValue);
 
@@ -693,27 +1571,135 @@ public class TMDBDataSource implements ExternalDataSource, ExternalDataSource.La
             }
 
             URI uri = builder.build();
+            String endpoint = TMDBMetrics.getEndpointTemplate(path);
 
-            long l = System.currentTimeMillis();
-            HttpGet getMethod = new HttpGet(uri);
-            CloseableHttpResponse resp = null;
+            if (!circuitBreaker.tryAcquire()) {
+                metrics.increment("tmdb.rejected");
+                throw new RepositoryException("TMDB is unavailable, not querying " + path);
+            }
 
-            try {
-                resp = (CloseableHttpResponse) httpClient.execute(getMethod);
-                return new JSONObject(EntityUtils.toString(resp.getEntity()));
+            for (int attempt = 0; ; attempt++) {
+                rateLimiter.acquire();
 
-            } finally {
-                if (resp != null) {
-                    resp.close();
+                long l = System.nanoTime();
+                HttpGet getMethod = new HttpGet(uri);
+                CloseableHttpResponse resp = null;
+                long wait;
+
+                try {
+                    try {
+                        resp = (CloseableHttpResponse) httpClient.execute(getMethod);
+                    } catch (IOException e) {
+                        circuitBreaker.onFailure();
+                        metrics.increment("tmdb.ioErrors");
+                        throw e;
+                    }
+                    int status = resp.getStatusLine().getStatusCode();
+                    metrics.increment(getStatusCounter(status));
+                    checkRateLimit(resp);
+                    if (status == SC_TOO_MANY_REQUESTS) {
+                        rateLimiter.onThrottled();
+                    }
+                    if ((status == SC_TOO_MANY_REQUESTS || status >= HttpStatus.SC_INTERNAL_SERVER_ERROR) && attempt < maxRetries) {
+                        wait = getRetryDelay(resp, attempt);
+                        if (status == SC_TOO_MANY_REQUESTS) {
+                            rateLimiter.pause(wait, TimeUnit.MILLISECONDS);
+                        }
+                        logger.warn("TMDB returned {} for {}, retrying in {} ms", status, path, wait);
+                        metrics.increment("tmdb.retries");
+                        EntityUtils.consumeQuietly(resp.getEntity());
+                    } else if (status == HttpStatus.SC_NOT_FOUND) {
+                        EntityUtils.consumeQuietly(resp.getEntity());
+                        circuitBreaker.onSuccess();
+                        throw new TMDBNotFoundException(path);
+                    } else if (status / 100 != 2) {
+                        EntityUtils.consumeQuietly(resp.getEntity());
+                        // Client errors such as a missing movie do not mean that TMDB is unavailable, and being
+                        // throttled is left to the rate limiter : it counts neither as a success nor as a failure
+                        if (status >= HttpStatus.SC_INTERNAL_SERVER_ERROR) {
+                            circuitBreaker.onFailure();
+                        } else if (status != SC_TOO_MANY_REQUESTS) {
+                            circuitBreaker.onSuccess();
+                        }
+                        throw new RepositoryException("TMDB returned " + status + " for " + path);
+                    } else {
+                        rateLimiter.onSuccess();
+                        circuitBreaker.onSuccess();
+                        return reader.read(resp.getEntity());
+                    }
+                } finally {
+                    if (resp != null) {
+                        resp.close();
+                    }
+                    metrics.time("tmdb." + endpoint, l);
+                    logger.debug("Request {} executed in {} ms", uri, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - l));
                 }
-                logger.debug("Request {} executed in {} ms", uri.toString(), (System.currentTimeMillis() - l));
+                Thread.sleep(wait);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException(e);
+        } catch (TMDBNotFoundException e) {
+            logger.debug(e.getMessage());
+            throw e;
+        } catch (RepositoryException e) {
+            logger.error("Error while querying TMDB: {}", e.getMessage());
+            throw e;
         } catch (Exception e) {
             logger.error("Error while querying TMDB", e);
             throw new RepositoryException(e);
         }
     }
 
+    private interface EntityReader<T> {
+        T read(HttpEntity entity) throws IOException, JSONException;
+    }
+
+    /**
+     * Holds back the requests until the rate limit window resets, when TMDB tells that no request is left in it.
+     */
+    /**
+     * @return the name of the counter of the responses with this status, without building it for the usual statuses
+     */
+    private static String getStatusCounter(int status) {
+        return status >= 0 && status < STATUS_COUNTERS.length ? STATUS_COUNTERS[status] : "tmdb.status." + status;
+    }
+
+    private void checkRateLimit(HttpResponse resp) {
+        Header remaining = resp.getFirstHeader("X-RateLimit-Remaining");
+        Header reset = resp.getFirstHeader("X-RateLimit-Reset");
+        if (remaining != null && reset != null && "0".equals(remaining.getValue().trim())) {
+            try {
+                long delay = Long.parseLong(reset.getValue().trim()) * 1000 - System.currentTimeMillis();
+                if (delay > 0) {
+                    rateLimiter.pause(Math.min(delay, MAX_RETRY_DELAY), TimeUnit.MILLISECONDS);
+                }
+            } catch (NumberFormatException e) {
+                logger.debug("Invalid X-RateLimit-Reset header {}", reset.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return the delay to wait before retrying, as sent by TMDB in <code>Retry-After</code>, or an exponential backoff
+     * with jitter
+     */
+    private long getRetryDelay(HttpResponse resp, int attempt) {
+        Header retryAfter = resp.getFirstHeader(HttpHeaders.RETRY_AFTER);
+        if (retryAfter != null) {
+            String value = retryAfter.getValue().trim();
+            try {
+                return Math.min(Long.parseLong(value) * 1000, MAX_RETRY_DELAY);
+            } catch (NumberFormatException e) {
+                Date date = DateUtils.parseDate(value);
+                if (date != null) {
+                    return Math.min(Math.max(date.getTime() - System.currentTimeMillis(), 0), MAX_RETRY_DELAY);
+                }
+            }
+        }
+        long delay = Math.min(retryDelay << Math.min(attempt, 16), MAX_RETRY_DELAY);
+        return ThreadLocalRandom.current().nextLong(delay / 2, delay + 1);
+    }
 
     @Override
     public String[] getPropertyValues(String path, String propertyName) throws PathNotFoundException {
@@ -722,25 +1708,34 @@ public class TMDBDataSource implements ExternalDataSource, ExternalDataSource.La
 
     @Override
     public String[] getI18nPropertyValues(String path, String lang, String propertyName) throws PathNotFoundException {
-        String result;
+        long start = System.nanoTime();
+        metrics.increment("lazyProperty", propertyName);
         try {
-            JSONObject movie;
-            if (path.startsWith("/movies")) {
-                String movieId = StringUtils.substringAfterLast(path, "/");
-                if (cache.get("fullmovie-" + lang + "-" + movieId) != null) {
-                    movie = new JSONObject((String) cache.get("fullmovie-" + lang + "-" + movieId).getObjectValue());
-                } else {
-                    movie = queryTMDB(API_MOVIE + movieId, "language", lang);
-                    cache.put(new Element("fullmovie-" + lang + "-" + movieId, movie.toString()));
-                }
-                if (propertyName.equals("jcr:title") && movie.has("title")) {
-                    return new String[]{movie.getString("title")};
-                } else if (propertyName.equals("poster_path") && movie.has("poster_path")) {
-                    JSONObject configuration = getConfiguration();
-                    String baseUrl = configuration.getJSONObject("images").getString("base_url");
-                    return new String[]{baseUrl + configuration.getJSONObject("images").getJSONArray("poster_sizes").get(1) + movie.getString(propertyName)};
-                } else if (movie.has(propertyName)) {
-                    return new String[]{movie.getString(propertyName)};
+            return loadI18nPropertyValues(path, lang, propertyName);
+        } finally {
+            metrics.time("provider.getPropertyValues", start);
+        }
+    }
+
+    private String[] loadI18nPropertyValues(String path, String lang, String propertyName) throws PathNotFoundException {
+        NodeKey key = NodeKey.parsePath(path);
+        if (key == null) {
+            throw new PathNotFoundException(path);
+        }
+        try {
+            // Only movies have translated properties, the credits of a movie have none
+            if (key.getKind() == NodeKey.Kind.MOVIE) {
+                Movie movie = getLocalizedMovie(key.getMovieId(), lang);
+                if (propertyName.equals("j:tagList")) {
+                    return movie.getGenres().toArray(new String[0]);
+                } else if (propertyName.equals("j:keywords")) {
+                    return movie.getKeywords().toArray(new String[0]);
+                } else if (propertyName.equals("jcr:title") && movie.getTitle() != null) {
+                    return new String[]{movie.getTitle()};
+                } else if (propertyName.equals("poster_path") && movie.getPosterPath() != null) {
+                    return new String[]{getConfiguration().getPosterUrl(movie.getPosterPath())};
+                } else if (movie.getProperty(propertyName) != null) {
+                    return new String[]{movie.getProperty(propertyName)};
                 }
                 return new String[]{""};
             }
@@ -755,125 +1750,105 @@ public class TMDBDataSource implements ExternalDataSource, ExternalDataSource.La
         return new Binary[0];
     }
 
-    public JSONObject getConfiguration() throws JSONException, RepositoryException {
-        JSONObject configuration;
-        if (cache.get("configuration") != null) {
-            configuration = new JSONObject((String) cache.get("configuration").getObjectValue());
-        } else {
-            configuration = queryTMDB(API_CONFIGURATION);
-            cache.put(new Element("configuration", configuration.toString()));
-        }
+    public ImageConfiguration getConfiguration() throws JSONException, RepositoryException {
+        return getOrLoad("configuration", ImageConfiguration.class, () -> queryTMDB(TMDBResponseDecoder::readConfiguration, API_CONFIGURATION));
+    }
 
-        return configuration;
+    /**
+     * @return the image configuration, or <code>null</code> if it cannot be fetched, in which case nodes are built
+     * without their images
+     */
+    private ImageConfiguration getConfigurationQuietly() {
+        try {
+            return getConfiguration();
+        } catch (JSONException | RepositoryException e) {
+            logger.error("Error while getting configuration", e);
+            return null;
+        }
     }
 
     @Override
     public List<String> search(ExternalQuery query) throws RepositoryException {
+        long start = System.nanoTime();
+        try {
+            String key = getQueryKey(query);
+            return key != null ? getQueryResults(key, query) : executeSearch(query);
+        } finally {
+            metrics.time("provider.search", start);
+        }
+    }
+
+    /**
+     * @return the key of the cached results of a query, or <code>null</code> if they cannot be cached
+     */
+    private String getQueryKey(ExternalQuery query) throws RepositoryException {
+        if (cache == null) {
+            return null;
+        }
+        try {
+            String nodeType = QueryHelper.getNodeType(query.getSource());
+            String key = QueryKey.of(nodeType, query);
+            if (key == null) {
+                return null;
+            }
+            long lists = isNodeType(nodeType, "jnt:moviesList") ? listsGeneration.get() : 0;
+            return "query-" + moviesGeneration.get() + "-" + lists + "-" + key;
+        } catch (UnsupportedRepositoryOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the cached results of a query, or runs it once for all the callers asking for it at the same time. Results
+     * are not served stale, since refreshing them in the background would run the query on the fetch executor, which
+     * the query itself uses.
+     */
+    @SuppressWarnings("unchecked")
+    private List<String> getQueryResults(String key, ExternalQuery query) throws RepositoryException {
+        TMDBCache.Entry entry = cache.getEntry(key);
+        if (entry != null && !entry.isStale() && entry.getValue() instanceof ArrayList) {
+            return new ArrayList<String>((List<String>) entry.getValue());
+        }
+        List<String> results = inFlightRequests.load(key, () -> {
+            ArrayList<String> loaded = new ArrayList<String>(executeSearch(query));
+            cache.put(key, loaded);
+            return loaded;
+        });
+        return new ArrayList<String>(results);
+    }
+
+    private List<String> executeSearch(ExternalQuery query) throws RepositoryException {
         List<String> results = new ArrayList<String>();
         String nodeType = QueryHelper.getNodeType(query.getSource());
 
         try {
-            if (NodeTypeRegistry.getInstance().getNodeType("jnt:movie").isNodeType(nodeType)) {
-                JSONArray tmdbResult = null;
-
-                Map<String, Value> m = QueryHelper.getSimpleOrConstraints(query.getConstraint());
-                if (m.containsKey("jcr:title")) {
-                    tmdbResult = queryTMDB(API_SEARCH_MOVIE, "query", m.get("jcr:title").getString()).getJSONArray("results");
-                    if (tmdbResult != null) {
-                        processResultsArray(results, tmdbResult);
-                    }
-                } else {
-                    long pageNumber = query.getOffset() / 20;
-                    if (pageNumber < 50) {
-                        //Return up to the first 2000 most popular movies
-                        JSONObject discoverMovies = queryTMDB(API_DISCOVER_MOVIE, "sort_by", "popularity.desc", "page", String.valueOf(pageNumber + 1));
-                        if (discoverMovies.has("total_pages") && discoverMovies.has("results")) {
-                            int totalPages = discoverMovies.getInt("total_pages");
-                            tmdbResult = discoverMovies.getJSONArray("results");
-                            if (tmdbResult != null) {
-                                processResultsArray(results, tmdbResult);
-                            }
-                            for (long i = pageNumber + 2; i <= totalPages; i++) {
-                                processResultsArray(results, queryTMDB(API_DISCOVER_MOVIE, "sort_by", "popularity.desc", "page", String.valueOf(i)).getJSONArray(
-                                        "results"));
-                                if (results.size() >= query.getLimit()) {
-                                    break;
-                                }
-                            }
-                        }
-                        logger.info("Found {} results from TMDB",results.size());
-                    }
-                }
+            if (isNodeType(nodeType, "jnt:movie")) {
+                DiscoverQuery discover = DiscoverQuery.translate(query, this::getGenreId);
+                searchMovies(results, discover, query.getOffset(), getLimit(query));
+                logger.debug("Found {} results from TMDB for {}", results.size(), discover.getParameters());
             }
-            if (NodeTypeRegistry.getInstance().getNodeType("jnt:moviesList").isNodeType(nodeType)) {
+            if (isNodeType(nodeType, "jnt:moviesList")) {
                 Map<String, Value> m = QueryHelper.getSimpleAndConstraints(query.getConstraint());
                 if (m.isEmpty()) {
-                    JSONObject o = queryTMDB("/3/account/" + getAccountId() + "/lists", "session_id", getSessionId());
-                    JSONArray result = o.getJSONArray("results");
-                    for (int i = 0; i < result.length(); i++) {
-                        JSONObject list = result.getJSONObject(i);
-                        results.add("/lists/" + list.getString("id"));
+                    for (MovieList list : getAccountLists()) {
+                        results.add("/lists/" + list.getId());
                     }
                 }
             }
 
-            if (NodeTypeRegistry.getInstance().getNodeType("jnt:cast").isNodeType(nodeType)) {
+            if (isNodeType(nodeType, "jnt:cast")) {
                 Map<String, Value> m = QueryHelper.getSimpleAndConstraints(query.getConstraint());
                 if (m.containsKey("id")) {
                     final String id = m.get("id").getString();
-                    JSONObject search;
-                    if (cache.get("movie_credits_query_" + id) != null) {
-                        search = new JSONObject((String) cache.get("movie_credits_query_" + id).getObjectValue());
-                    } else {
-                        search = queryTMDB("/3/person/" + id + "/movie_credits");
-                        cache.put(new Element("movie_credits_query_" + id, search.toString()));
-                    }
-
-                    JSONArray result = search.getJSONArray("cast");
-                    for (int i = 0; i < result.length(); i++) {
-                        JSONObject r = result.getJSONObject(i);
-                        ExternalData d = getItemByIdentifier("movie-" + r.getString("id"));
-                        if (d != null && d.getPath() != null) {
-                            for (String s : getChildren(d.getPath())) {
-                                if (s.endsWith(id)) {
-                                    results.add(d.getPath() + "/" + s);
-                                    if (results.size() == 20) {
-                                        return results;
-                                    }
-                                }
-                            }
-                        }
-                    }
+                    searchPersonCredits(results, id, getPersonCredits(id).getCast(), true, query.getOffset(), getLimit(query));
                 }
             }
 
-            if (NodeTypeRegistry.getInstance().getNodeType("jnt:crew").isNodeType(nodeType)) {
+            if (isNodeType(nodeType, "jnt:crew")) {
                 Map<String, Value> m = QueryHelper.getSimpleAndConstraints(query.getConstraint());
                 if (m.containsKey("id")) {
                     final String id = m.get("id").getString();
-                    JSONObject search;
-                    if (cache.get("movie_credits_query_" + id) != null) {
-                        search = new JSONObject((String) cache.get("movie_credits_query_" + id).getObjectValue());
-                    } else {
-                        search = queryTMDB("/3/person/" + id + "/movie_credits");
-                        cache.put(new Element("movie_credits_query_" + id, search.toString()));
-                    }
-
-                    JSONArray result = search.getJSONArray("crew");
-                    for (int i = 0; i < result.length(); i++) {
-                        JSONObject r = result.getJSONObject(i);
-                        ExternalData d = getItemByIdentifier("movie-" + r.getString("id"));
-                        if (d != null && d.getPath() != null) {
-                            for (String s : getChildren(d.getPath())) {
-                                if (s.endsWith("_" + r.getString("job") + "_" + id)) {
-                                    results.add(d.getPath() + "/" + s);
-                                    if (results.size() == 20) {
-                                        return results;
-                                    }
-                                }
-                            }
-                        }
-                    }
+                    searchPersonCredits(results, id, getPersonCredits(id).getCrew(), false, query.getOffset(), getLimit(query));
                 }
             }
         } catch (UnsupportedRepositoryOperationException e) {
@@ -884,15 +1859,320 @@ public class TMDBDataSource implements ExternalDataSource, ExternalDataSource.La
         return results;
     }
 
-    private void processResultsArray(List<String> results, JSONArray tmdbResult) throws JSONException {
-        for (int i = 0; i < tmdbResult.length(); i++) {
-            JSONObject jsonObject = tmdbResult.getJSONObject(i);
-            final String path = getPathForMovie(jsonObject);
-            if (path != null) {
+    /**
+     * Adds the paths of the movies matching a query, starting at the given position among them.
+     * <p>
+     * When TMDB returns only matching movies, only the pages holding the requested positions are fetched, concurrently.
+     * Movies without a release date have no node, they keep their position but are not returned. Otherwise the results
+     * are checked, and pages are read in order, a few at a time, until enough movies matched.
+     */
+    private void searchMovies(List<String> results, DiscoverQuery discover, long offset, long limit) throws RepositoryException {
+        if (discover.isEmpty()) {
+            return;
+        }
+        if (discover.getTitle() != null && !discover.isFiltered() && titleIndex != null && offset + limit <= MAX_LOCAL_TITLE_RESULTS) {
+            searchTitle(results, discover, (int) offset, (int) limit);
+            return;
+        }
+        if (!discover.isFiltered()) {
+            int firstPage = (int) Math.min(offset / PAGE_SIZE + 1, Integer.MAX_VALUE);
+            // Return up to the first 2000 most popular movies
+            int lastPage = (int) Math.min((offset + limit - 1) / PAGE_SIZE + 1, discover.isPopular() ? MAX_DISCOVER_PAGES : MAX_TMDB_PAGES);
+            long skip = offset - (long) (firstPage - 1) * PAGE_SIZE;
+            long remaining = limit;
+            for (MoviePage page : fetchMoviePages(discover, firstPage, lastPage)) {
+                for (Movie movie : page.getResults()) {
+                    if (skip > 0) {
+                        skip--;
+                    } else if (remaining > 0) {
+                        remaining--;
+                        addMovie(results, movie);
+                    }
+                }
+                if (page.getPage() >= page.getTotalPages()) {
+                    break;
+                }
+            }
+            return;
+        }
+        long skip = offset;
+        long remaining = limit;
+        for (int firstPage = 1; remaining > 0 && firstPage <= MAX_DISCOVER_PAGES; firstPage += SEARCH_BATCH_PAGES) {
+            for (MoviePage page : fetchMoviePages(discover, firstPage, Math.min(firstPage + SEARCH_BATCH_PAGES - 1, MAX_DISCOVER_PAGES))) {
+                List<Movie> matching = remaining > 0 ? filterMovies(discover, page.getResults()) : Collections.<Movie>emptyList();
+                for (Movie movie : matching) {
+                    if (skip > 0) {
+                        skip--;
+                    } else if (remaining > 0) {
+                        remaining--;
+                        addMovie(results, movie);
+                    }
+                }
+                if (page.getPage() >= page.getTotalPages()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the first {@link #MAX_LOCAL_TITLE_RESULTS} matches of the title index. They are kept with the query
+     * results, so that all the pages of a search are cut from the same matches while movies enter the index.
+     */
+    @SuppressWarnings("unchecked")
+    private List<String> getLocalTitleMatches(String title) {
+        String key = "query-titles-" + moviesGeneration.get() + "-" + StringUtils.join(TitleIndex.getWords(title), ' ');
+        Object cached = cache != null ? cache.get(key) : null;
+        if (cached instanceof ArrayList) {
+            return (List<String>) cached;
+        }
+        List<String> local = titleIndex.search(title, MAX_LOCAL_TITLE_RESULTS);
+        if (local != null && cache != null) {
+            cache.put(key, new ArrayList<String>(local));
+        }
+        return local;
+    }
+
+    /**
+     * @return the movies of a result page that have a node and match the query. The movies that cannot be checked on
+     * the fields of the result are checked in full, fetched concurrently, and excluded if they still cannot be checked.
+     */
+    private List<Movie> filterMovies(DiscoverQuery discover, List<Movie> movies) throws RepositoryException {
+        Boolean[] matches = new Boolean[movies.size()];
+        List<Integer> undecided = new ArrayList<Integer>();
+        List<InFlightRequests.Loader<Movie>> loaders = new ArrayList<InFlightRequests.Loader<Movie>>();
+        for (int i = 0; i < movies.size(); i++) {
+            Movie movie = movies.get(i);
+            matches[i] = getPathForMovie(movie) != null ? discover.matches(movie) : Boolean.FALSE;
+            if (matches[i] == null) {
+                undecided.add(i);
+                loaders.add(() -> {
+                    try {
+                        return getFullMovie(movie.getId());
+                    } catch (TMDBNotFoundException e) {
+                        return null;
+                    }
+                });
+            }
+        }
+        List<Movie> fullMovies = fetchAll(loaders);
+        for (int i = 0; i < undecided.size(); i++) {
+            Movie fullMovie = fullMovies.get(i);
+            matches[undecided.get(i)] = fullMovie != null ? discover.matches(fullMovie) : Boolean.FALSE;
+        }
+        List<Movie> results = new ArrayList<Movie>();
+        for (int i = 0; i < movies.size(); i++) {
+            if (matches[i] == Boolean.TRUE) {
+                results.add(movies.get(i));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Answers a title search from the title index when it holds enough matches to fill the requested page, like the
+     * first suggestions of a title being typed. Otherwise TMDB is searched, and its results follow the local matches.
+     */
+    private void searchTitle(List<String> results, DiscoverQuery discover, int offset, int limit) throws RepositoryException {
+        List<String> local = getLocalTitleMatches(discover.getTitle());
+        if (local != null && local.size() >= offset + limit) {
+            metrics.increment("titleIndex.hits");
+            results.addAll(local.subList(offset, offset + limit));
+            return;
+        }
+        metrics.increment("titleIndex.misses");
+        Set<String> merged = new LinkedHashSet<String>(local != null ? local : Collections.<String>emptyList());
+        int lastPage = Math.min((offset + limit - 1) / PAGE_SIZE + 1, MAX_TMDB_PAGES);
+        for (MoviePage page : fetchMoviePages(discover, 1, lastPage)) {
+            for (Movie movie : page.getResults()) {
+                String path = getPathForMovie(movie);
+                if (path != null) {
+                    titleIndex.add(movie, path);
+                    merged.add(path);
+                }
+            }
+            if (page.getPage() >= page.getTotalPages()) {
+                break;
+            }
+        }
+        int position = 0;
+        for (String path : merged) {
+            if (position >= offset + limit) {
+                break;
+            }
+            if (position++ >= offset) {
                 results.add(path);
-                cache.put(new Element("indexedfullmovie-" + jsonObject.getString("id"), "indexed"));
+                NodeKey key = NodeKey.parsePath(path);
+                if (key != null && key.getMovieId() != null) {
+                    markIndexed(key.getMovieId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the paths of the credits of a person, from the position <code>offset</code> among the credits that have a
+     * node.
+     * <p>
+     * The path of a crew credit is built from the person credits alone. The name of a cast node holds the cast id, that
+     * only the credits of the movie have : they are fetched concurrently, for the requested credits only.
+     */
+    private void searchPersonCredits(List<String> results, String personId, List<PersonCredits.Entry> entries, boolean cast,
+                                     long offset, long limit) throws RepositoryException {
+        List<PersonCredits.Entry> requested = new ArrayList<PersonCredits.Entry>();
+        Set<String> crewNodes = new HashSet<String>();
+        long skip = offset;
+        for (PersonCredits.Entry entry : entries) {
+            if (requested.size() >= limit) {
+                break;
+            }
+            // A person holding the same job twice in a movie has a single node
+            if (getPathForMovie(entry.getMovieId(), entry.getReleaseDate()) == null
+                    || !cast && !crewNodes.add(entry.getMovieId() + "_" + entry.getJob())) {
+                continue;
+            }
+            if (skip > 0) {
+                skip--;
+            } else {
+                requested.add(entry);
+            }
+        }
+        if (!cast) {
+            for (PersonCredits.Entry entry : requested) {
+                results.add(getPathForMovie(entry.getMovieId(), entry.getReleaseDate()) + "/crew_" + entry.getJob() + "_" + personId);
+            }
+            return;
+        }
+        List<InFlightRequests.Loader<Credits>> loaders = new ArrayList<InFlightRequests.Loader<Credits>>();
+        for (PersonCredits.Entry entry : requested) {
+            loaders.add(() -> {
+                try {
+                    return getCredits(entry.getMovieId());
+                } catch (TMDBNotFoundException e) {
+                    return null;
+                }
+            });
+        }
+        List<Credits> credits = fetchAll(loaders);
+        for (int i = 0; i < requested.size(); i++) {
+            PersonCredits.Entry entry = requested.get(i);
+            Credits.Cast credit = credits.get(i) != null ? findCast(credits.get(i), personId, entry.getCreditId()) : null;
+            if (credit != null) {
+                results.add(getPathForMovie(entry.getMovieId(), entry.getReleaseDate()) + "/" + credit.getNodeName());
+            }
+        }
+    }
+
+    /**
+     * @return the role of a person in a movie, identified by its credit id when the person has several roles
+     */
+    private static Credits.Cast findCast(Credits credits, String personId, String creditId) {
+        Credits.Cast found = null;
+        for (Credits.Cast cast : credits.getCast()) {
+            if (personId.equals(cast.getPersonId())) {
+                if (creditId == null || creditId.equals(cast.getCreditId())) {
+                    return cast;
+                }
+                if (found == null) {
+                    found = cast;
+                }
+            }
+        }
+        return found;
+    }
+
+    private static long getLimit(ExternalQuery query) {
+        return query.getLimit() > 0 ? query.getLimit() : PAGE_SIZE;
+    }
+
+    private List<MoviePage> fetchMoviePages(DiscoverQuery discover, int firstPage, int lastPage) throws RepositoryException {
+        List<InFlightRequests.Loader<MoviePage>> loaders = new ArrayList<InFlightRequests.Loader<MoviePage>>();
+        for (int i = firstPage; i <= lastPage; i++) {
+            final int page = i;
+            loaders.add(() -> getMoviePage(discover, page));
+        }
+        return fetchAll(loaders);
+    }
+
+    private MoviePage getMoviePage(DiscoverQuery discover, int page) throws RepositoryException {
+        if (discover.getTitle() != null) {
+            return queryTMDB(TMDBResponseDecoder::readMoviePage, API_SEARCH_MOVIE, "query", discover.getTitle(), "page", String.valueOf(page));
+        }
+        if (discover.isPopular()) {
+            return getPopularPage(page);
+        }
+        List<String> params = new ArrayList<String>();
+        StringBuilder key = new StringBuilder("movies-discover-");
+        for (Map.Entry<String, String> parameter : discover.getParameters().entrySet()) {
+            params.add(parameter.getKey());
+            params.add(parameter.getValue());
+            key.append(parameter.getKey()).append('=').append(parameter.getValue()).append('&');
+        }
+        params.add("page");
+        params.add(String.valueOf(page));
+        return getOrLoad(key.append("page=").append(page).toString(), MoviePage.class,
+                () -> queryTMDB(TMDBResponseDecoder::readMoviePage, API_DISCOVER_MOVIE, params.toArray(new String[0])));
+    }
+
+    private void addMovie(List<String> results, Movie movie) {
+        String path = getPathForMovie(movie);
+        if (path != null) {
+            results.add(path);
+            markIndexed(movie.getId());
+        }
+    }
+
+    /**
+     * Marks a movie found by a search as indexed, unless it already is, so that reading its node does not send it to
+     * the indexer.
+     */
+    private void markIndexed(String movieId) {
+        String key = "indexedfullmovie-" + movieId;
+        if (cache.get(key) == null) {
+            cache.put(key, "indexed");
+        }
+    }
+
+    /**
+     * @return the TMDB id of a genre, or <code>null</code> if there is no genre with this name
+     */
+    private String getGenreId(String name) throws RepositoryException {
+        Map<?, ?> genres = getOrLoad("genres", Map.class,
+                () -> queryTMDB(TMDBResponseDecoder::readGenres, API_GENRES, "language", DEFAULT_LANGUAGE));
+        return (String) genres.get(name);
+    }
+
+    /**
+     * @return whether the nodes of the given type match a query on the queried node type
+     */
+    boolean isNodeType(String queriedNodeType, String type) throws RepositoryException {
+        return NodeTypeRegistry.getInstance().getNodeType(type).isNodeType(queriedNodeType);
+    }
+
+    /**
+     * Runs the loaders concurrently on the fetch executor, and returns their results in the same order.
+     */
+    private <T> List<T> fetchAll(List<InFlightRequests.Loader<T>> loaders) throws RepositoryException {
+        Executor executor = fetchExecutor != null ? fetchExecutor : Runnable::run;
+        List<CompletableFuture<T>> futures = new ArrayList<CompletableFuture<T>>(loaders.size());
+        for (InFlightRequests.Loader<T> loader : loaders) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return loader.load();
+                } catch (RepositoryException | JSONException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+        List<T> results = new ArrayList<T>(futures.size());
+        try {
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
             }
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RepositoryException ? (RepositoryException) e.getCause() : new RepositoryException(e.getCause());
         }
+        return results;
     }
 
     private String getAccountId() throws RepositoryException, JSONException {
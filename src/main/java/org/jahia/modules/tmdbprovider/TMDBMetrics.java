@@ -0,0 +1,253 @@
+package org.jahia.modules.tmdbprovider;
+
+import java.beans.ConstructorProperties;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Counters, gauges and latency histograms of the provider.
+ * <p>
+ * Recording only costs a map lookup and a few atomic additions, so metrics are always on. Latencies are kept in
+ * histograms with one bucket per power of two microseconds, from which percentiles are estimated.
+ */
+public final class TMDBMetrics implements TMDBMetricsMXBean {
+
+    private static final int BUCKETS = 32;
+
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DoubleSupplier> gauges = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+    /**
+     * The counters named after a prefix and a value, by prefix and value
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, LongAdder>> countersByValue = new ConcurrentHashMap<>();
+
+    /**
+     * Latency statistics of a timer, in milliseconds.
+     */
+    public static final class TimerSnapshot {
+        private final long count;
+        private final double mean;
+        private final double max;
+        private final double p50;
+        private final double p95;
+        private final double p99;
+
+        @ConstructorProperties({"count", "mean", "max", "p50", "p95", "p99"})
+        public TimerSnapshot(long count, double mean, double max, double p50, double p95, double p99) {
+            this.count = count;
+            this.mean = mean;
+            this.max = max;
+            this.p50 = p50;
+            this.p95 = p95;
+            this.p99 = p99;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        public double getP50() {
+            return p50;
+        }
+
+        public double getP95() {
+            return p95;
+        }
+
+        public double getP99() {
+            return p99;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d, mean=%.2fms, p50=%.2fms, p95=%.2fms, p99=%.2fms, max=%.2fms", count, mean, p50, p95, p99, max);
+        }
+    }
+
+    private static final class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        private Timer() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        private void record(long nanos) {
+            long micros = Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 0);
+            count.increment();
+            total.add(micros);
+            buckets[Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1)].increment();
+            long current;
+            while (micros > (current = max.get()) && !max.compareAndSet(current, micros)) {
+                // Retry
+            }
+        }
+
+        private TimerSnapshot snapshot() {
+            long[] counts = new long[BUCKETS];
+            long n = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets[i].sum();
+                n += counts[i];
+            }
+            long c = count.sum();
+            double maxMillis = max.get() / 1000d;
+            return new TimerSnapshot(c, c > 0 ? total.sum() / 1000d / c : 0, maxMillis, Math.min(percentile(counts, n, 0.5), maxMillis),
+                    Math.min(percentile(counts, n, 0.95), maxMillis), Math.min(percentile(counts, n, 0.99), maxMillis));
+        }
+
+        /**
+         * @return the upper bound of the bucket holding the percentile, in milliseconds
+         */
+        private static double percentile(long[] counts, long n, double percentile) {
+            long rank = (long) Math.ceil(n * percentile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return (1L << i) / 1000d;
+                }
+            }
+            return 0;
+        }
+    }
+
+    public void increment(String counter) {
+        counters.computeIfAbsent(counter, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Increments the counter named after a prefix and a value, like <code>lazyProperty.overview</code>. Its name is
+     * only built the first time the value is counted.
+     */
+    public void increment(String prefix, String value) {
+        ConcurrentMap<String, LongAdder> byValue = countersByValue.computeIfAbsent(prefix, k -> new ConcurrentHashMap<>());
+        LongAdder counter = byValue.get(value);
+        if (counter == null) {
+            counter = byValue.computeIfAbsent(value, v -> counters.computeIfAbsent(prefix + "." + v, k -> new LongAdder()));
+        }
+        counter.increment();
+    }
+
+    /**
+     * Records the time elapsed since <code>start</code>, as returned by {@link System#nanoTime()}.
+     */
+    public void time(String timer, long start) {
+        timers.computeIfAbsent(timer, k -> new Timer()).record(System.nanoTime() - start);
+    }
+
+    public void registerGauge(String gauge, DoubleSupplier supplier) {
+        gauges.put(gauge, supplier);
+    }
+
+    public void removeGauges() {
+        gauges.clear();
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().sum());
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Double> getGauges() {
+        Map<String, Double> values = new TreeMap<>();
+        for (Map.Entry<String, DoubleSupplier> entry : gauges.entrySet()) {
+            try {
+                values.put(entry.getKey(), entry.getValue().getAsDouble());
+            } catch (RuntimeException e) {
+                values.put(entry.getKey(), Double.NaN);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, TimerSnapshot> getTimers() {
+        Map<String, TimerSnapshot> values = new TreeMap<>();
+        for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return values;
+    }
+
+    @Override
+    public void reset() {
+        countersByValue.clear();
+        counters.clear();
+        timers.clear();
+    }
+
+    /**
+     * Returns the template of a TMDB path, where ids are replaced by <code>{id}</code>, like
+     * <code>/3/movie/{id}/credits</code>, so that requests to the same endpoint are measured together.
+     */
+    public static String getEndpointTemplate(String path) {
+        StringBuilder template = null;
+        // The first segment is the version of the API
+        int start = path.indexOf('/', 1);
+        if (start < 0) {
+            return path;
+        }
+        String previous = "";
+        while (start < path.length()) {
+            int end = path.indexOf('/', start + 1);
+            if (end < 0) {
+                end = path.length();
+            }
+            String segment = path.substring(start + 1, end);
+            if (isId(segment, previous)) {
+                if (template == null) {
+                    template = new StringBuilder(path.length()).append(path, 0, start);
+                }
+                template.append("/{id}");
+            } else if (template != null) {
+                template.append(path, start, end);
+            }
+            previous = segment;
+            start = end;
+        }
+        return template != null ? template.toString() : path;
+    }
+
+    /**
+     * Ids are numbers, except list ids, which are alphanumeric.
+     */
+    private static boolean isId(String segment, String previous) {
+        if (segment.isEmpty()) {
+            return false;
+        }
+        if (previous.equals("list")) {
+            return true;
+        }
+        for (int i = 0; i < segment.length(); i++) {
+            if (!Character.isDigit(segment.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
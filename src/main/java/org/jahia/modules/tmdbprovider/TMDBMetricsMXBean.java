@@ -0,0 +1,29 @@
+package org.jahia.modules.tmdbprovider;
+
+import java.util.Map;
+
+/**
+ * JMX view of the {@link TMDBMetrics}.
+ */
+public interface TMDBMetricsMXBean {
+
+    /**
+     * @return the value of every counter, keyed by name
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * @return the value of every gauge, keyed by name
+     */
+    Map<String, Double> getGauges();
+
+    /**
+     * @return the latency statistics of every timer, keyed by name
+     */
+    Map<String, TMDBMetrics.TimerSnapshot> getTimers();
+
+    /**
+     * Resets the counters and timers.
+     */
+    void reset();
+}
@@ -0,0 +1,15 @@
+package org.jahia.modules.tmdbprovider;
+
+import javax.jcr.RepositoryException;
+
+/**
+ * Thrown when TMDB does not know the requested resource, either with a 404 or with an empty payload.
+ */
+public class TMDBNotFoundException extends RepositoryException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TMDBNotFoundException(String resource) {
+        super("TMDB resource not found: " + resource);
+    }
+}
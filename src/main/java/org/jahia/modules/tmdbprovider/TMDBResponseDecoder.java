@@ -0,0 +1,865 @@
+package org.jahia.modules.tmdbprovider;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming decoder for the TMDB payloads. Responses are read token by token from the HTTP stream straight into the
+ * domain records, the fields that are not mapped are skipped without being materialized.
+ */
+final class TMDBResponseDecoder {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Reads a full payload from a stream.
+     */
+    interface Reader<T> {
+        T read(JsonParser p) throws IOException;
+    }
+
+    /**
+     * A movie, with the credits appended to its payload.
+     */
+    static final class MovieResponse {
+        private final Movie movie;
+        private final Credits credits;
+
+        MovieResponse(Movie movie, Credits credits) {
+            this.movie = movie;
+            this.credits = credits;
+        }
+
+        Movie getMovie() {
+            return movie;
+        }
+
+        /**
+         * @return the credits, or <code>null</code> if they were not appended to the payload
+         */
+        Credits getCredits() {
+            return credits;
+        }
+    }
+
+    /**
+     * A page of the ids listed by a <code>/changes</code> feed.
+     */
+    static final class ChangesPage {
+        private final int page;
+        private final int totalPages;
+        private final List<String> ids;
+
+        ChangesPage(int page, int totalPages, List<String> ids) {
+            this.page = page;
+            this.totalPages = totalPages;
+            this.ids = ids;
+        }
+
+        int getPage() {
+            return page;
+        }
+
+        int getTotalPages() {
+            return totalPages;
+        }
+
+        List<String> getIds() {
+            return ids;
+        }
+    }
+
+    private TMDBResponseDecoder() {
+    }
+
+    static <T> T decode(InputStream in, Reader<T> reader) throws IOException {
+        try (JsonParser p = JSON_FACTORY.createParser(in)) {
+            expect(p.nextToken(), JsonToken.START_OBJECT);
+            return reader.read(p);
+        }
+    }
+
+    /**
+     * Reads a <code>/3/movie/{id}</code> payload, with its appended keywords, credits and translations.
+     */
+    static MovieResponse readMovieResponse(JsonParser p) throws IOException {
+        Movie.Builder builder = new Movie.Builder().full(true);
+        List<Credits.Cast> cast = null;
+        List<Credits.Crew> crew = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            p.nextToken();
+            if (field.equals("credits") && p.currentToken() == JsonToken.START_OBJECT) {
+                cast = new ArrayList<>();
+                crew = new ArrayList<>();
+                readCredits(p, cast, crew);
+            } else {
+                readMovieField(p, field, builder);
+            }
+        }
+        Movie movie = builder.build();
+        Credits credits = cast != null ? new Credits(movie.getId(), Collections.unmodifiableList(cast), Collections.unmodifiableList(crew)) : null;
+        return new MovieResponse(movie, credits);
+    }
+
+    /**
+     * Reads a paginated discover or search payload.
+     */
+    static MoviePage readMoviePage(JsonParser p) throws IOException {
+        int page = 1;
+        int totalPages = 0;
+        int totalResults = 0;
+        List<Movie> results = new ArrayList<>();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            p.nextToken();
+            switch (field) {
+                case "page":
+                    page = p.getValueAsInt(1);
+                    break;
+                case "total_pages":
+                    totalPages = p.getValueAsInt();
+                    break;
+                case "total_results":
+                    totalResults = p.getValueAsInt();
+                    break;
+                case "results":
+                    if (p.currentToken() == JsonToken.START_ARRAY) {
+                        while (p.nextToken() == JsonToken.START_OBJECT) {
+                            results.add(readMovie(p));
+                        }
+                    } else {
+                        p.skipChildren();
+                    }
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        return new MoviePage(page, totalPages, totalResults, Collections.unmodifiableList(results));
+    }
+
+    /**
+     * Reads a <code>/3/movie/{id}/credits</code> payload.
+     */
+    static Credits readCredits(JsonParser p) throws IOException {
+        String movieId = null;
+        List<Credits.Cast> cast = new ArrayList<>();
+        List<Credits.Crew> crew = new ArrayList<>();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            p.nextToken();
+            switch (field) {
+                case "id":
+                    movieId = text(p);
+                    break;
+                case "cast":
+                    readCast(p, cast);
+                    break;
+                case "crew":
+                    readCrew(p, crew);
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        return new Credits(movieId, Collections.unmodifiableList(cast), Collections.unmodifiableList(crew));
+    }
+
+    /**
+     * Reads a <code>/3/person/{id}</code> payload.
+     */
+    static Person readPerson(JsonParser p) throws IOException {
+        String id = null;
+        String name = null;
+        String biography = null;
+        String homepage = null;
+        String profilePath = null;
+        String birthday = null;
+        String deathday = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            p.nextToken();
+            switch (field) {
+                case "id":
+                    id = text(p);
+                    break;
+                case "name":
+                    name = text(p);
+                    break;
+                case "biography":
+                    biography = text(p);
+                    break;
+                case "homepage":
+                    homepage = text(p);
+                    break;
+                case "profile_path":
+                    profilePath = text(p);
+                    break;
+                case "birthday":
+                    birthday = text(p);
+                    break;
+                case "deathday":
+                    deathday = text(p);
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        return new Person(id, name, biography, homepage, profilePath, birthday, deathday);
+    }
+
+    /**
+     * Reads a <code>/3/person/{id}/movie_credits</code> payload.
+     */
+    static PersonCredits readPersonCredits(JsonParser p) throws IOException {
+        String personId = null;
+        List<PersonCredits.Entry> cast = Collections.emptyList();
+        List<PersonCredits.Entry> crew = Collections.emptyList();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            p.nextToken();
+            switch (field) {
+                case "id":
+                    personId = text(p);
+                    break;
+                case "cast":
+                    cast = readPersonCreditEntries(p);
+                    break;
+                case "crew":
+                    crew = readPersonCreditEntries(p);
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        return new PersonCredits(personId, cast, crew);
+    }
+
+    /**
+     * Reads a <code>/3/list/{id}</code> payload.
+     */
+    static MovieList readList(JsonParser p) throws IOException {
+        String id = null;
+        String name = null;
+        String description = null;
+        String posterPath = null;
+        List<String> movieIds = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            p.nextToken();
+            switch (field) {
+                case "id":
+                    id = text(p);
+                    break;
+                case "name":
+                    name = text(p);
+                    break;
+                case "description":
+                    description = text(p);
+                    break;
+                case "poster_path":
+                    posterPath = text(p);
+                    break;
+                case "items":
+                    movieIds = new ArrayList<>();
+                    if (p.currentToken() == JsonToken.START_ARRAY) {
+                        while (p.nextToken() == JsonToken.START_OBJECT) {
+                            movieIds.add(readId(p));
+                        }
+                    } else {
+                        p.skipChildren();
+                    }
+                    movieIds = Collections.unmodifiableList(movieIds);
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        return new MovieList(id, name, description, posterPath, movieIds);
+    }
+
+    /**
+     * Reads a <code>/3/account/{id}/lists</code> payload.
+     */
+    static List<MovieList> readListPage(JsonParser p) throws IOException {
+        List<MovieList> lists = new ArrayList<>();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            p.nextToken();
+            if (field.equals("results") && p.currentToken() == JsonToken.START_ARRAY) {
+                while (p.nextToken() == JsonToken.START_OBJECT) {
+                    lists.add(readList(p));
+                }
+            } else {
+                p.skipChildren();
+            }
+        }
+        return lists;
+    }
+
+    /**
+     * Reads a <code>/3/movie/changes</code> or <code>/3/person/changes</code> payload.
+     */
+    static ChangesPage readChanges(JsonParser p) throws IOException {
+        int page = 1;
+        int totalPages = 0;
+        List<String> ids = new ArrayList<>();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            p.nextToken();
+            switch (field) {
+                case "page":
+                    page = p.getValueAsInt(1);
+                    break;
+                case "total_pages":
+                    totalPages = p.getValueAsInt();
+                    break;
+                case "results":
+                    if (p.currentToken() == JsonToken.START_ARRAY) {
+                        while (p.nextToken() == JsonToken.START_OBJECT) {
+                            String id = readId(p);
+                            if (id != null) {
+                                ids.add(id);
+                            }
+                        }
+                    } else {
+                        p.skipChildren();
+                    }
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        return new ChangesPage(page, totalPages, ids);
+    }
+
+    /**
+     * Reads a <code>/3/genre/movie/list</code> payload, into the ids of the genres keyed by name.
+     */
+    static HashMap<String, String> readGenres(JsonParser p) throws IOException {
+        HashMap<String, String> genres = new HashMap<>();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            p.nextToken();
+            if (field.equals("genres") && p.currentToken() == JsonToken.START_ARRAY) {
+                while (p.nextToken() == JsonToken.START_OBJECT) {
+                    String id = null;
+                    String name = null;
+                    while (p.nextToken() == JsonToken.FIELD_NAME) {
+                        String genreField = p.getCurrentName();
+                        p.nextToken();
+                        if (genreField.equals("id")) {
+                            id = text(p);
+                        } else if (genreField.equals("name")) {
+                            name = text(p);
+                        } else {
+                            p.skipChildren();
+                        }
+                    }
+                    if (id != null && name != null) {
+                        genres.put(name, id);
+                    }
+                }
+            } else {
+                p.skipChildren();
+            }
+        }
+        return genres;
+    }
+
+    /**
+     * Reads a <code>/3/configuration</code> payload.
+     */
+    static ImageConfiguration readConfiguration(JsonParser p) throws IOException {
+        String baseUrl = null;
+        List<String> posterSizes = Collections.emptyList();
+        List<String> backdropSizes = Collections.emptyList();
+        List<String> profileSizes = Collections.emptyList();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            p.nextToken();
+            if (field.equals("images") && p.currentToken() == JsonToken.START_OBJECT) {
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String imageField = p.getCurrentName();
+                    p.nextToken();
+                    switch (imageField) {
+                        case "base_url":
+                            baseUrl = text(p);
+                            break;
+                        case "poster_sizes":
+                            posterSizes = readStrings(p);
+                            break;
+                        case "backdrop_sizes":
+                            backdropSizes = readStrings(p);
+                            break;
+                        case "profile_sizes":
+                            profileSizes = readStrings(p);
+                            break;
+                        default:
+                            p.skipChildren();
+                    }
+                }
+            } else {
+                p.skipChildren();
+            }
+        }
+        return new ImageConfiguration(baseUrl, posterSizes, backdropSizes, profileSizes);
+    }
+
+    private static Movie readMovie(JsonParser p) throws IOException {
+        Movie.Builder builder = new Movie.Builder();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            p.nextToken();
+            readMovieField(p, field, builder);
+        }
+        return builder.build();
+    }
+
+    private static void readMovieField(JsonParser p, String field, Movie.Builder builder) throws IOException {
+        switch (field) {
+            case "id":
+                builder.id(text(p));
+                break;
+            case "title":
+                builder.title(text(p));
+                break;
+            case "original_title":
+                builder.originalTitle(text(p));
+                break;
+            case "overview":
+                builder.overview(text(p));
+                break;
+            case "tagline":
+                builder.tagline(text(p));
+                break;
+            case "poster_path":
+                builder.posterPath(text(p));
+                break;
+            case "backdrop_path":
+                builder.backdropPath(text(p));
+                break;
+            case "homepage":
+                builder.homepage(text(p));
+                break;
+            case "release_date":
+                builder.releaseDate(text(p));
+                break;
+            case "status":
+                builder.status(text(p));
+                break;
+            case "imdb_id":
+                builder.imdbId(text(p));
+                break;
+            case "runtime":
+                builder.runtime(longValue(p));
+                break;
+            case "budget":
+                builder.budget(longValue(p));
+                break;
+            case "revenue":
+                builder.revenue(longValue(p));
+                break;
+            case "vote_count":
+                builder.voteCount(longValue(p));
+                break;
+            case "vote_average":
+                builder.voteAverage(doubleValue(p));
+                break;
+            case "popularity":
+                builder.popularity(doubleValue(p));
+                break;
+            case "adult":
+                builder.adult(p.currentToken().isBoolean() ? p.getBooleanValue() : null);
+                break;
+            case "genres":
+                readGenres(p, builder);
+                break;
+            case "genre_ids":
+                builder.genreIds(readStrings(p));
+                break;
+            case "keywords":
+                builder.keywords(readNestedNames(p, "keywords"));
+                break;
+            case "translations":
+                builder.translations(readTranslations(p));
+                break;
+            default:
+                p.skipChildren();
+        }
+    }
+
+    private static void readCredits(JsonParser p, List<Credits.Cast> cast, List<Credits.Crew> crew) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            p.nextToken();
+            if (field.equals("cast")) {
+                readCast(p, cast);
+            } else if (field.equals("crew")) {
+                readCrew(p, crew);
+            } else {
+                p.skipChildren();
+            }
+        }
+    }
+
+    private static void readCast(JsonParser p, List<Credits.Cast> cast) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return;
+        }
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            String personId = null;
+            String castId = null;
+            String creditId = null;
+            String name = null;
+            String character = null;
+            String order = null;
+            String profilePath = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                p.nextToken();
+                switch (field) {
+                    case "id":
+                        personId = text(p);
+                        break;
+                    case "cast_id":
+                        castId = text(p);
+                        break;
+                    case "credit_id":
+                        creditId = text(p);
+                        break;
+                    case "name":
+                        name = text(p);
+                        break;
+                    case "character":
+                        character = text(p);
+                        break;
+                    case "order":
+                        order = text(p);
+                        break;
+                    case "profile_path":
+                        profilePath = text(p);
+                        break;
+                    default:
+                        p.skipChildren();
+                }
+            }
+            cast.add(new Credits.Cast(personId, castId, creditId, name, character, order, profilePath));
+        }
+    }
+
+    private static void readCrew(JsonParser p, List<Credits.Crew> crew) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return;
+        }
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            String personId = null;
+            String name = null;
+            String job = null;
+            String department = null;
+            String profilePath = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                p.nextToken();
+                switch (field) {
+                    case "id":
+                        personId = text(p);
+                        break;
+                    case "name":
+                        name = text(p);
+                        break;
+                    case "job":
+                        job = text(p);
+                        break;
+                    case "department":
+                        department = text(p);
+                        break;
+                    case "profile_path":
+                        profilePath = text(p);
+                        break;
+                    default:
+                        p.skipChildren();
+                }
+            }
+            crew.add(new Credits.Crew(personId, name, job, department, profilePath));
+        }
+    }
+
+    private static List<PersonCredits.Entry> readPersonCreditEntries(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return Collections.emptyList();
+        }
+        List<PersonCredits.Entry> entries = new ArrayList<>();
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            String movieId = null;
+            String releaseDate = null;
+            String creditId = null;
+            String job = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                p.nextToken();
+                switch (field) {
+                    case "id":
+                        movieId = text(p);
+                        break;
+                    case "release_date":
+                        releaseDate = text(p);
+                        break;
+                    case "credit_id":
+                        creditId = text(p);
+                        break;
+                    case "job":
+                        job = text(p);
+                        break;
+                    default:
+                        p.skipChildren();
+                }
+            }
+            entries.add(new PersonCredits.Entry(movieId, releaseDate, creditId, job));
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    private static Map<String, Movie.Translation> readTranslations(JsonParser p) throws IOException {
+        Map<String, Movie.Translation> translations = new LinkedHashMap<>();
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return Collections.emptyMap();
+        }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            p.nextToken();
+            if (!field.equals("translations") || p.currentToken() != JsonToken.START_ARRAY) {
+                p.skipChildren();
+                continue;
+            }
+            while (p.nextToken() == JsonToken.START_OBJECT) {
+                String language = null;
+                String country = null;
+                Movie.Translation translation = null;
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String translationField = p.getCurrentName();
+                    p.nextToken();
+                    switch (translationField) {
+                        case "iso_639_1":
+                            language = text(p);
+                            break;
+                        case "iso_3166_1":
+                            country = text(p);
+                            break;
+                        case "data":
+                            translation = readTranslation(p);
+                            break;
+                        default:
+                            p.skipChildren();
+                    }
+                }
+                if (translation != null) {
+                    translations.put(language + "-" + country, translation);
+                }
+            }
+        }
+        return Collections.unmodifiableMap(translations);
+    }
+
+    private static Movie.Translation readTranslation(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return null;
+        }
+        String title = null;
+        String overview = null;
+        String tagline = null;
+        String homepage = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            p.nextToken();
+            switch (field) {
+                case "title":
+                    title = text(p);
+                    break;
+                case "overview":
+                    overview = text(p);
+                    break;
+                case "tagline":
+                    tagline = text(p);
+                    break;
+                case "homepage":
+                    homepage = text(p);
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        return new Movie.Translation(title, overview, tagline, homepage);
+    }
+
+    /**
+     * Reads the names and the ids of the genres of a full movie.
+     */
+    private static void readGenres(JsonParser p, Movie.Builder builder) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return;
+        }
+        List<String> names = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                p.nextToken();
+                if (field.equals("name")) {
+                    String name = text(p);
+                    if (name != null) {
+                        names.add(name);
+                    }
+                } else if (field.equals("id")) {
+                    String id = text(p);
+                    if (id != null) {
+                        ids.add(id);
+                    }
+                } else {
+                    p.skipChildren();
+                }
+            }
+        }
+        builder.genres(names).genreIds(ids);
+    }
+
+    /**
+     * Reads the <code>name</code> of every object in an array, like keywords.
+     */
+    private static List<String> readNames(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return Collections.emptyList();
+        }
+        List<String> names = new ArrayList<>();
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                p.nextToken();
+                if (field.equals("name")) {
+                    String name = text(p);
+                    if (name != null) {
+                        names.add(name);
+                    }
+                } else {
+                    p.skipChildren();
+                }
+            }
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * Reads the names of an object wrapping a named array, like the appended <code>{"keywords": [...]}</code>.
+     */
+    private static List<String> readNestedNames(JsonParser p, String arrayField) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            return readNames(p);
+        }
+        List<String> names = Collections.emptyList();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            p.nextToken();
+            if (field.equals(arrayField)) {
+                names = readNames(p);
+            } else {
+                p.skipChildren();
+            }
+        }
+        return names;
+    }
+
+    private static List<String> readStrings(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return Collections.emptyList();
+        }
+        List<String> values = new ArrayList<>();
+        for (JsonToken token = p.nextToken(); token != null && token != JsonToken.END_ARRAY; token = p.nextToken()) {
+            values.add(text(p));
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * Reads the <code>id</code> of an object and skips its other fields.
+     */
+    private static String readId(JsonParser p) throws IOException {
+        String id = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            p.nextToken();
+            if (field.equals("id")) {
+                id = text(p);
+            } else {
+                p.skipChildren();
+            }
+        }
+        return id;
+    }
+
+    private static String text(JsonParser p) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return null;
+        }
+        return p.getText();
+    }
+
+    private static Long longValue(JsonParser p) throws IOException {
+        if (p.currentToken().isNumeric()) {
+            return p.getLongValue();
+        }
+        String s = text(p);
+        if (s == null || s.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(s);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Double doubleValue(JsonParser p) throws IOException {
+        if (p.currentToken().isNumeric()) {
+            return p.getDoubleValue();
+        }
+        String s = text(p);
+        if (s == null || s.isEmpty()) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Unexpected JSON token " + actual + ", expected " + expected);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package org.jahia.modules.tmdbprovider;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In memory index of the titles of the movies seen by the provider, answering title searches without querying TMDB.
+ * <p>
+ * Titles and original titles are split into words, lower cased and stripped of their accents. Every prefix of a word,
+ * from {@link #MIN_PREFIX} to {@link #MAX_PREFIX} characters, points to the movies holding that word. A movie matches
+ * a search when every word of the search starts one of the words of its titles. Matches are sorted by popularity.
+ * <p>
+ * Movies are added as they enter the cache, and only their path and popularity are kept. Once the index holds its
+ * maximum number of movies, the least popular tenth of them is removed to make room for the new ones.
+ */
+final class TitleIndex {
+
+    static final int MIN_PREFIX = 2;
+    static final int MAX_PREFIX = 12;
+
+    private static final class Entry {
+        private final String id;
+        private final String path;
+        private final Set<String> titles = ConcurrentHashMap.newKeySet();
+        private final Set<String> words = ConcurrentHashMap.newKeySet();
+        private volatile double popularity;
+
+        private Entry(String id, String path) {
+            this.id = id;
+            this.path = path;
+        }
+    }
+
+    private final int maxMovies;
+    private final ConcurrentMap<String, Entry> movies = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<String>> prefixes = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * @param maxMovies the maximum number of movies in the index
+     */
+    TitleIndex(int maxMovies) {
+        this.maxMovies = maxMovies;
+    }
+
+    /**
+     * Adds the titles of a movie, or updates its popularity if they are already indexed. A movie is indexed under all
+     * the titles it was added with, like its translated titles.
+     *
+     * @param path the path of the movie node
+     */
+    void add(Movie movie, String path) {
+        if (movie.getId() == null || path == null) {
+            return;
+        }
+        Entry entry = movies.get(movie.getId());
+        if (entry == null) {
+            if (size.get() >= maxMovies) {
+                evictLeastPopular();
+            }
+            Entry created = new Entry(movie.getId(), path);
+            entry = movies.putIfAbsent(movie.getId(), created);
+            if (entry == null) {
+                entry = created;
+                size.incrementAndGet();
+            }
+        }
+        if (movie.getPopularity() != null) {
+            entry.popularity = movie.getPopularity();
+        }
+        addWords(movie.getId(), entry, movie.getTitle());
+        addWords(movie.getId(), entry, movie.getOriginalTitle());
+    }
+
+    /**
+     * @return whether the movie was indexed
+     */
+    boolean remove(String movieId) {
+        Entry entry = movies.remove(movieId);
+        if (entry != null) {
+            size.decrementAndGet();
+            for (String word : entry.words) {
+                for (int length = MIN_PREFIX; length <= Math.min(word.length(), MAX_PREFIX); length++) {
+                    Set<String> ids = prefixes.get(word.substring(0, length));
+                    if (ids != null) {
+                        ids.remove(movieId);
+                    }
+                }
+            }
+        }
+        return entry != null;
+    }
+
+    /**
+     * Removes the least popular tenth of the movies, if the index is still full once the lock is held.
+     */
+    private synchronized void evictLeastPopular() {
+        if (size.get() < maxMovies) {
+            return;
+        }
+        List<Entry> entries = new ArrayList<>(movies.values());
+        entries.sort(Comparator.comparingDouble(entry -> entry.popularity));
+        for (int i = 0; i < Math.max(1, maxMovies / 10) && i < entries.size(); i++) {
+            remove(entries.get(i).id);
+        }
+    }
+
+    /**
+     * Removes all the movies. A movie added at the same time may be kept.
+     */
+    synchronized void clear() {
+        movies.clear();
+        prefixes.clear();
+        size.set(movies.size());
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * @param limit the maximum number of paths returned
+     * @return the paths of the movies matching the text, the most popular first, or <code>null</code> if the text has
+     * no word long enough to be searched
+     */
+    List<String> search(String text, int limit) {
+        List<String> words = new ArrayList<>();
+        for (String word : getWords(text)) {
+            if (word.length() >= MIN_PREFIX) {
+                words.add(word);
+            }
+        }
+        if (words.isEmpty()) {
+            return null;
+        }
+        // Candidates are the movies of the least common prefix, checked against the other words
+        Set<String> candidates = null;
+        for (String word : words) {
+            Set<String> ids = prefixes.get(word.length() > MAX_PREFIX ? word.substring(0, MAX_PREFIX) : word);
+            if (ids == null || ids.isEmpty()) {
+                return Collections.emptyList();
+            }
+            if (candidates == null || ids.size() < candidates.size()) {
+                candidates = ids;
+            }
+        }
+        List<Entry> matches = new ArrayList<>();
+        for (String id : candidates) {
+            Entry entry = movies.get(id);
+            if (entry != null && matches(entry, words)) {
+                matches.add(entry);
+            }
+        }
+        matches.sort((a, b) -> Double.compare(b.popularity, a.popularity));
+        List<String> paths = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            paths.add(matches.get(i).path);
+        }
+        return paths;
+    }
+
+    private static boolean matches(Entry entry, List<String> words) {
+        for (String word : words) {
+            boolean found = false;
+            for (String title : entry.words) {
+                if (title.startsWith(word)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addWords(String movieId, Entry entry, String title) {
+        if (title == null || !entry.titles.add(title)) {
+            return;
+        }
+        for (String word : getWords(title)) {
+            if (word.length() >= MIN_PREFIX && entry.words.add(word)) {
+                for (int length = MIN_PREFIX; length <= Math.min(word.length(), MAX_PREFIX); length++) {
+                    prefixes.computeIfAbsent(word.substring(0, length), k -> ConcurrentHashMap.newKeySet()).add(movieId);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the words of a text, lower cased and without accents
+     */
+    static List<String> getWords(String text) {
+        if (text == null) {
+            return Collections.emptyList();
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (word.length() > 0) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+}
@@ -0,0 +1,38 @@
+package org.jahia.modules.tmdbprovider;
+
+import net.sf.ehcache.CacheManager;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CacheRegionTest {
+
+    private final CacheManager cacheManager = DataSourceSupport.newCacheManager("tmdb-regions");
+
+    @After
+    public void stop() {
+        cacheManager.shutdown();
+    }
+
+    @Test
+    public void onlyRegionsServedStaleKeepEntriesAfterTheirTimeToLive() {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("cacheMovies", "ttl=3600");
+        settings.put("cacheNotFound", "ttl=600");
+        TMDBDataSource.Config config = DataSourceSupport.newConfig(settings);
+
+        assertEquals(3600, CacheRegion.MOVIES.createCache(cacheManager, config, 86400));
+        assertEquals(600, CacheRegion.NOT_FOUND.createCache(cacheManager, config, 86400));
+
+        assertEquals(3600 + 86400, getTimeToLive(CacheRegion.MOVIES));
+        assertEquals(600, getTimeToLive(CacheRegion.NOT_FOUND));
+    }
+
+    private long getTimeToLive(CacheRegion region) {
+        return cacheManager.getCache(region.getCacheName()).getCacheConfiguration().getTimeToLiveSeconds();
+    }
+}
@@ -0,0 +1,55 @@
+package org.jahia.modules.tmdbprovider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs callers concurrently in the tests.
+ */
+final class ConcurrencySupport {
+
+    private ConcurrencySupport() {
+    }
+
+    /**
+     * Starts <code>threads</code> callers together, and opens <code>release</code> once they are all either running the
+     * load or waiting for it, so that none of them can come after the load has ended.
+     */
+    static List<Future<Object>> runConcurrently(int threads, Callable<Object> call, CountDownLatch release) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicInteger started = new AtomicInteger();
+            List<Thread> callers = new CopyOnWriteArrayList<>();
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    callers.add(Thread.currentThread());
+                    start.await();
+                    started.incrementAndGet();
+                    return call.call();
+                }));
+            }
+            start.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while ((started.get() < threads || !allWaiting(callers)) && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static boolean allWaiting(List<Thread> threads) {
+        for (Thread thread : threads) {
+            if (thread.getState() != Thread.State.WAITING) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
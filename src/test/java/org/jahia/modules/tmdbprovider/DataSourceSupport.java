@@ -0,0 +1,76 @@
+package org.jahia.modules.tmdbprovider;
+
+import net.sf.ehcache.CacheManager;
+import org.apache.http.client.HttpClient;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs the provider outside of Jahia for the tests and the benchmarks : the configuration is built from the defaults
+ * of {@link TMDBDataSource.Config} and the node type hierarchy is reduced to exact matches.
+ */
+final class DataSourceSupport {
+
+    private DataSourceSupport() {
+    }
+
+    /**
+     * Provider that does not need the Jahia node type registry.
+     */
+    static final class LocalDataSource extends TMDBDataSource {
+        @Override
+        boolean isNodeType(String queriedNodeType, String type) {
+            return queriedNodeType.equals(type) || queriedNodeType.equals("nt:base");
+        }
+    }
+
+    /**
+     * @param overrides the values of the attributes which do not keep their default, keyed by attribute name
+     */
+    static TMDBDataSource.Config newConfig(Map<String, Object> overrides) {
+        return (TMDBDataSource.Config) Proxy.newProxyInstance(TMDBDataSource.Config.class.getClassLoader(),
+                new Class<?>[]{TMDBDataSource.Config.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "annotationType":
+                            return TMDBDataSource.Config.class;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "Config" + overrides;
+                        default:
+                            return overrides.containsKey(method.getName()) ? overrides.get(method.getName()) : method.getDefaultValue();
+                    }
+                });
+    }
+
+    /**
+     * Creates a provider querying TMDB through the given client, with an in memory cache and without the background
+     * tasks that need Jahia, like indexing.
+     */
+    static TMDBDataSource newDataSource(HttpClient httpClient, CacheManager cacheManager, Map<String, Object> config) {
+        // The disk cache lives in the Jahia var directory, and would make the runs depend on each other. Stubs are not
+        // rate limited, otherwise cold runs would only measure the wait for permits
+        Map<String, Object> values = new HashMap<>();
+        values.put("diskCacheEnabled", false);
+        values.put("requestsPerSecond", 1000000);
+        values.putAll(config);
+        TMDBDataSource dataSource = new LocalDataSource();
+        dataSource.setHttpClient(httpClient);
+        dataSource.setApiKeyValue("local");
+        dataSource.initialize(newConfig(values), cacheManager);
+        return dataSource;
+    }
+
+    static TMDBDataSource newDataSource(HttpClient httpClient, CacheManager cacheManager) {
+        return newDataSource(httpClient, cacheManager, Collections.<String, Object>emptyMap());
+    }
+
+    static CacheManager newCacheManager(String name) {
+        return new CacheManager(new net.sf.ehcache.config.Configuration().name(name));
+    }
+}
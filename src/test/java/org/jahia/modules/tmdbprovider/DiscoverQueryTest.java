@@ -0,0 +1,98 @@
+package org.jahia.modules.tmdbprovider;
+
+import org.junit.Test;
+
+import javax.jcr.query.qom.Constraint;
+import java.util.*;
+
+import static org.jahia.modules.tmdbprovider.QuerySupport.*;
+import static org.junit.Assert.*;
+
+public class DiscoverQueryTest {
+
+    private static final Map<String, String> GENRES = new HashMap<>();
+
+    static {
+        GENRES.put("Action", "28");
+        GENRES.put("Drama", "18");
+    }
+
+    @Test
+    public void genresArePushedDown() throws Exception {
+        DiscoverQuery discover = translate(and(compare("j:tagList", "=", "Action"), compare("vote_count", ">=", "100")));
+        assertNull(discover.getTitle());
+        assertEquals("28", discover.getParameters().get("with_genres"));
+        assertEquals("100", discover.getParameters().get("vote_count.gte"));
+        assertFalse(discover.isFiltered());
+    }
+
+    @Test
+    public void genresAreCheckedOnSearchResults() throws Exception {
+        DiscoverQuery discover = translate(and(compare("jcr:title", "like", "%fight%"), compare("j:tagList", "=", "Drama")));
+        assertEquals("fight", discover.getTitle());
+        assertTrue(discover.isFiltered());
+        assertEquals(Boolean.TRUE, discover.matches(movie().genreIds(Arrays.asList("18", "53")).build()));
+        assertEquals(Boolean.FALSE, discover.matches(movie().genreIds(Collections.singletonList("28")).build()));
+    }
+
+    @Test
+    public void alternativeGenresAreCheckedOnSearchResults() throws Exception {
+        DiscoverQuery discover = translate(and(compare("jcr:title", "=", "fight"),
+                or(compare("j:tagList", "=", "Action"), compare("j:tagList", "=", "Drama"))));
+        assertEquals("28|18", discover.getParameters().get("with_genres"));
+        assertEquals(Boolean.TRUE, discover.matches(movie().genreIds(Collections.singletonList("28")).build()));
+        assertEquals(Boolean.FALSE, discover.matches(movie().genreIds(Collections.singletonList("53")).build()));
+    }
+
+    @Test
+    public void unknownGenreMatchesNothing() throws Exception {
+        assertTrue(translate(compare("j:tagList", "=", "Western")).isEmpty());
+    }
+
+    @Test
+    public void wildcardsInsideTitlePatternsAreChecked() throws Exception {
+        DiscoverQuery discover = translate(compare("jcr:title", "like", "Fight_Club%"));
+        assertEquals("Fight Club", discover.getTitle());
+        assertTrue(discover.isFiltered());
+        assertEquals(Boolean.TRUE, discover.matches(movie().title("Fight-Club").build()));
+        assertEquals(Boolean.FALSE, discover.matches(movie().title("The Fight Club").build()));
+
+        discover = translate(compare("jcr:title", "like", "%fight club%"));
+        assertEquals("fight club", discover.getTitle());
+        assertFalse(discover.isFiltered());
+    }
+
+    @Test
+    public void detailsAreOnlyCheckedOnFullMovies() throws Exception {
+        DiscoverQuery discover = translate(compare("runtime", ">", "120"));
+        assertTrue(discover.isFiltered());
+        assertNull(discover.matches(movie().build()));
+        assertEquals(Boolean.TRUE, discover.matches(movie().runtime(139L).full(true).build()));
+        assertEquals(Boolean.FALSE, discover.matches(movie().runtime(90L).full(true).build()));
+    }
+
+    @Test
+    public void unsupportedConstraintsCannotBeChecked() throws Exception {
+        DiscoverQuery discover = translate(and(compare("j:nodename", "=", "550"), compare("vote_count", ">", "100")));
+        assertEquals(Boolean.FALSE, discover.matches(movie().voteCount(10L).full(true).build()));
+        assertNull(discover.matches(movie().voteCount(1000L).full(true).build()));
+    }
+
+    @Test
+    public void likeMatchesWildcardsAndEscapes() {
+        assertTrue(DiscoverQuery.like("Fight Club", "%Club"));
+        assertTrue(DiscoverQuery.like("Fight Club", "F_ght%"));
+        assertTrue(DiscoverQuery.like("100% Wolf", "100\\% %"));
+        assertFalse(DiscoverQuery.like("1000 Wolves", "100\\% %"));
+        assertFalse(DiscoverQuery.like("Fight Club", "fight%"));
+        assertTrue(DiscoverQuery.like("Fight (Club)", "Fight (%)"));
+    }
+
+    private static DiscoverQuery translate(Constraint constraint) throws Exception {
+        return DiscoverQuery.translate(query(constraint), GENRES::get);
+    }
+
+    private static Movie.Builder movie() {
+        return new Movie.Builder().id("550").title("Fight Club").releaseDate("1999-10-15");
+    }
+}
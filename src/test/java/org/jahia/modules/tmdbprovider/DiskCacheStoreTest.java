@@ -0,0 +1,72 @@
+package org.jahia.modules.tmdbprovider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class DiskCacheStoreTest {
+
+    private static final long MAX_SIZE = 64 * 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void valuesAreReadBackAfterReopening() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("cache.data");
+        try (DiskCacheStore store = new DiskCacheStore(file, MAX_SIZE, 0, 0.5)) {
+            store.put("movie-550", "Fight Club");
+            store.put("movie-551", "The Poseidon Adventure");
+            store.put("movie-550", "Fight Club (1999)");
+            store.remove("movie-551");
+        }
+        try (DiskCacheStore store = new DiskCacheStore(file, MAX_SIZE, 0, 0.5)) {
+            assertEquals("Fight Club (1999)", store.get("movie-550").getValue());
+            assertNull(store.get("movie-551"));
+            assertEquals(1, store.getSize());
+        }
+    }
+
+    @Test
+    public void compactionDropsDeadRecords() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("cache.data");
+        String value = new String(new char[64 * 1024]).replace('\0', 'x');
+        try (DiskCacheStore store = new DiskCacheStore(file, MAX_SIZE, 0, 0.5)) {
+            // Overwriting the same keys makes most of the file dead, which triggers compactions
+            for (int i = 0; i < 100; i++) {
+                store.put("movie-" + (i % 10), value + i);
+            }
+            store.put("movie-0", "Kept");
+            store.remove("movie-1");
+
+            assertTrue(store.getFileSize() < 40 * 64 * 1024);
+            assertEquals(9, store.getSize());
+            assertEquals("Kept", store.get("movie-0").getValue());
+            assertNull(store.get("movie-1"));
+            assertEquals(value + 99, store.get("movie-9").getValue());
+        }
+        try (DiskCacheStore store = new DiskCacheStore(file, MAX_SIZE, 0, 0.5)) {
+            assertEquals(9, store.getSize());
+            assertEquals("Kept", store.get("movie-0").getValue());
+            assertEquals(value + 92, store.get("movie-2").getValue());
+        }
+    }
+
+    @Test
+    public void compactionDropsTheOldestRecordsAboveTheMaximumSize() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("cache.data");
+        String value = new String(new char[100 * 1024]).replace('\0', 'x');
+        try (DiskCacheStore store = new DiskCacheStore(file, 2 * 1024 * 1024, 0, 0.5)) {
+            for (int i = 0; i < 30; i++) {
+                store.put("movie-" + i, value);
+            }
+            assertTrue(store.getFileSize() <= 2 * 1024 * 1024);
+            assertNull(store.get("movie-0"));
+            assertNotNull(store.get("movie-29"));
+        }
+    }
+}
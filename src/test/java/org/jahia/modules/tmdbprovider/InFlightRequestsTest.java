@@ -0,0 +1,95 @@
+package org.jahia.modules.tmdbprovider;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+import javax.jcr.RepositoryException;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class InFlightRequestsTest {
+
+    private static final int THREADS = 16;
+
+    private final InFlightRequests inFlight = new InFlightRequests();
+
+    @Test
+    public void concurrentCallersShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<Object>> results = ConcurrencySupport.runConcurrently(THREADS, () -> inFlight.load("movie-550", () -> {
+            loads.incrementAndGet();
+            await(release);
+            return "Fight Club";
+        }), release);
+
+        for (Future<Object> result : results) {
+            assertEquals("Fight Club", result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(0, inFlight.size());
+    }
+
+    @Test
+    public void failureIsPropagatedToEveryCaller() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        RepositoryException failure = new RepositoryException("TMDB is down");
+        List<Future<Object>> results = ConcurrencySupport.runConcurrently(THREADS, () -> inFlight.load("movie-550", () -> {
+            loads.incrementAndGet();
+            await(release);
+            throw failure;
+        }), release);
+
+        for (Future<Object> result : results) {
+            try {
+                result.get(10, TimeUnit.SECONDS);
+                fail("The load failure should be propagated");
+            } catch (ExecutionException e) {
+                assertSame(failure, e.getCause());
+            }
+        }
+        assertEquals(1, loads.get());
+        assertEquals(0, inFlight.size());
+    }
+
+    @Test
+    public void failedLoadIsRunAgain() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        InFlightRequests.Loader<String> loader = () -> {
+            if (loads.incrementAndGet() == 1) {
+                throw new JSONException("Truncated response");
+            }
+            return "Fight Club";
+        };
+
+        try {
+            inFlight.load("movie-550", loader);
+            fail("The load failure should be propagated");
+        } catch (RepositoryException e) {
+            assertTrue(e.getCause() instanceof JSONException);
+        }
+        assertEquals("Fight Club", inFlight.load("movie-550", loader));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void differentKeysAreLoadedSeparately() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals("550", inFlight.load("movie-550", () -> loads.incrementAndGet() > 0 ? "550" : null));
+        assertEquals("551", inFlight.load("movie-551", () -> loads.incrementAndGet() > 0 ? "551" : null));
+        assertEquals(2, loads.get());
+    }
+
+    private static void await(CountDownLatch latch) throws RepositoryException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException(e);
+        }
+    }
+}
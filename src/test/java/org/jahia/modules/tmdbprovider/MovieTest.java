@@ -0,0 +1,62 @@
+package org.jahia.modules.tmdbprovider;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class MovieTest {
+
+    @Test
+    public void translateUsesTheRequestedRegion() {
+        assertEquals("Fight Club CA", movie("fr-BE", "fr-CA", "fr-FR").translate("fr_CA").getTitle());
+    }
+
+    @Test
+    public void translateFallsBackToThePrimaryRegion() {
+        assertEquals("Fight Club FR", movie("fr-BE", "fr-CA", "fr-FR").translate("fr").getTitle());
+        assertEquals("Fight Club FR", movie("fr-CA", "fr-FR", "fr-BE").translate("fr_CH").getTitle());
+        assertEquals("Fight Club US", movie("en-GB", "en-AU", "en-US").translate("en").getTitle());
+    }
+
+    @Test
+    public void translateFallsBackToTheFirstRegionInOrder() {
+        assertEquals("Fight Club BE", movie("fr-CA", "fr-BE").translate("fr").getTitle());
+        assertEquals("Fight Club BE", movie("fr-BE", "fr-CA").translate("fr").getTitle());
+    }
+
+    @Test
+    public void translateKeepsTheOriginalValuesWithoutTranslation() {
+        Movie movie = movie("fr-FR").translate("de");
+        assertEquals("Fight Club", movie.getTitle());
+        assertTrue(movie.getTranslations().isEmpty());
+    }
+
+    @Test
+    public void builderCopiesCollections() {
+        List<String> genres = new ArrayList<>(Collections.singletonList("Drama"));
+        Map<String, Movie.Translation> translations = new HashMap<>();
+        translations.put("fr-FR", new Movie.Translation("Fight Club FR", null, null, null));
+        Movie movie = new Movie.Builder().id("550").genres(genres).translations(translations).build();
+        genres.add("Thriller");
+        translations.clear();
+
+        assertEquals(Collections.singletonList("Drama"), movie.getGenres());
+        assertEquals(1, movie.getTranslations().size());
+        try {
+            movie.getGenres().add("Thriller");
+            fail("Genres should not be modifiable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    private static Movie movie(String... translations) {
+        Map<String, Movie.Translation> values = new LinkedHashMap<>();
+        for (String key : translations) {
+            values.put(key, new Movie.Translation("Fight Club " + key.substring(3), null, null, null));
+        }
+        return new Movie.Builder().id("550").title("Fight Club").translations(values).build();
+    }
+}
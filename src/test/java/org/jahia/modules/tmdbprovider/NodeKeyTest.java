@@ -0,0 +1,81 @@
+package org.jahia.modules.tmdbprovider;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NodeKeyTest {
+
+    @Test
+    public void pathsAndIdentifiersOfEveryKind() {
+        assertKey("/", "root", NodeKey.Kind.ROOT);
+        assertKey("/movies", "movies-rootfolder", NodeKey.Kind.FOLDER);
+        assertKey("/lists", "lists-rootfolder", NodeKey.Kind.FOLDER);
+        assertKey("/persons", "persons-rootfolder", NodeKey.Kind.FOLDER);
+        assertKey("/movies/1999", "movies-folder-1999", NodeKey.Kind.YEAR);
+        assertKey("/movies/1999/10", "movies-folder-1999/10", NodeKey.Kind.MONTH);
+        assertKey("/lists/abc123", "lists-abc123", NodeKey.Kind.LIST);
+        assertKey("/lists/abc123/550", "movieref-abc123-550", NodeKey.Kind.MOVIE_REF);
+        assertKey("/persons/287", "person-287", NodeKey.Kind.PERSON);
+    }
+
+    @Test
+    public void moviesAndCreditsKeepTheirFolderOnlyFromPaths() {
+        NodeKey movie = NodeKey.parsePath("/movies/1999/10/550");
+        assertEquals(NodeKey.Kind.MOVIE, movie.getKind());
+        assertEquals("550", movie.getMovieId());
+        assertEquals("movie-550", movie.getIdentifier());
+        assertEquals("/movies/1999/10/550", movie.getPath());
+        assertNull(NodeKey.parseIdentifier("movie-550").getPath());
+
+        NodeKey credit = NodeKey.parsePath("/movies/1999/10/550/cast_819");
+        assertEquals(NodeKey.Kind.CREDIT, credit.getKind());
+        assertEquals("550", credit.getMovieId());
+        assertEquals("cast_819", credit.getCreditName());
+        assertEquals("moviecredits-550-cast_819", credit.getIdentifier());
+        assertEquals("cast_819", NodeKey.parseIdentifier("moviecredits-550-cast_819").getCreditName());
+    }
+
+    @Test
+    public void idsBelongToTheirKind() {
+        NodeKey ref = NodeKey.parsePath("/lists/abc123/550");
+        assertEquals("abc123", ref.getListId());
+        assertEquals("550", ref.getMovieId());
+        assertNull(ref.getPersonId());
+        assertNull(NodeKey.parsePath("/persons/287").getMovieId());
+        assertNull(NodeKey.parsePath("/movies/1999/10/550/cast_819").getListId());
+    }
+
+    @Test
+    public void trailingSlashIsIgnored() {
+        assertEquals(NodeKey.Kind.MOVIE, NodeKey.parsePath("/movies/1999/10/550/").getKind());
+    }
+
+    @Test
+    public void invalidPathsAndIdentifiersHaveNoKey() {
+        assertNull(NodeKey.parsePath("movies"));
+        assertNull(NodeKey.parsePath("/films"));
+        assertNull(NodeKey.parsePath("/movies/99"));
+        assertNull(NodeKey.parsePath("/movies/1999/1"));
+        assertNull(NodeKey.parsePath("/movies/1999/10/abc"));
+        assertNull(NodeKey.parsePath("/movies/1999/10/99999999999"));
+        assertNull(NodeKey.parsePath("/movies/1999/10/550/cast_819/more"));
+        assertNull(NodeKey.parsePath("/lists/ABC"));
+        assertNull(NodeKey.parsePath("/persons/287/550"));
+        assertNull(NodeKey.parseIdentifier("movie-"));
+        assertNull(NodeKey.parseIdentifier("movie-abc"));
+        assertNull(NodeKey.parseIdentifier("movies-folder-1999/1"));
+        assertNull(NodeKey.parseIdentifier("moviecredits-550-"));
+        assertNull(NodeKey.parseIdentifier("films-rootfolder"));
+        assertNull(NodeKey.parseIdentifier("unknown"));
+    }
+
+    private static void assertKey(String path, String identifier, NodeKey.Kind kind) {
+        NodeKey fromPath = NodeKey.parsePath(path);
+        NodeKey fromIdentifier = NodeKey.parseIdentifier(identifier);
+        assertEquals(kind, fromPath.getKind());
+        assertEquals(identifier, fromPath.getIdentifier());
+        assertEquals(kind, fromIdentifier.getKind());
+        assertEquals(path, fromIdentifier.getPath());
+    }
+}
@@ -0,0 +1,108 @@
+package org.jahia.modules.tmdbprovider;
+
+import org.junit.Test;
+
+import javax.jcr.RepositoryException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class PagedListTest {
+
+    @Test
+    public void pagesAreLoadedWhenRead() {
+        AtomicInteger loads = new AtomicInteger();
+        PagedList<Integer> list = new PagedList<>(Arrays.asList(0, 1), page -> {
+            loads.incrementAndGet();
+            return page(page, 2);
+        }, 2, 5, null, 0);
+
+        assertEquals(5, list.size());
+        assertEquals(Integer.valueOf(1), list.get(1));
+        assertEquals(0, loads.get());
+        assertEquals(Integer.valueOf(4), list.get(4));
+        assertEquals(1, loads.get());
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), new ArrayList<>(list));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void iterationEndsAtAFailedPage() {
+        PagedList<Integer> list = new PagedList<>(Arrays.asList(0, 1), page -> {
+            if (page == 3) {
+                throw new RepositoryException("TMDB is down");
+            }
+            return page(page, 2);
+        }, 2, 8, null, 0);
+
+        List<Integer> read = new ArrayList<>();
+        for (Integer value : list) {
+            read.add(value);
+        }
+        assertEquals(Arrays.asList(0, 1, 2, 3), read);
+        assertEquals(4, list.size());
+    }
+
+    @Test
+    public void iterationEndsAtAShortPage() {
+        PagedList<Integer> list = new PagedList<>(Arrays.asList(0, 1), page -> page == 2 ? Arrays.asList(2) : page(page, 2), 2, 8, null, 0);
+
+        assertEquals(Arrays.asList(0, 1, 2), new ArrayList<>(list));
+        assertEquals(3, list.size());
+        try {
+            list.get(3);
+            fail("The list should be cut after the short page");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void shortFirstPageCutsTheList() {
+        PagedList<Integer> list = new PagedList<>(Arrays.asList(0), page -> page(page, 2), 2, 8, null, 0);
+        assertEquals(1, list.size());
+        assertEquals(Arrays.asList(0), new ArrayList<>(list));
+    }
+
+    @Test
+    public void pagesAreLoadedConcurrentlyWhileIterating() {
+        AtomicInteger loading = new AtomicInteger();
+        AtomicInteger maxLoading = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            PagedList<Integer> list = new PagedList<>(Arrays.asList(0, 1), page -> {
+                maxLoading.accumulateAndGet(loading.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    loading.decrementAndGet();
+                }
+                return page(page, 2);
+            }, 2, 100, executor, 4);
+
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                expected.add(i);
+            }
+            assertEquals(expected, new ArrayList<>(list));
+            assertTrue("The 50 pages should not be loaded one after the other", maxLoading.get() > 1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<Integer> page(int page, int pageSize) {
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < pageSize; i++) {
+            values.add((page - 1) * pageSize + i);
+        }
+        return values;
+    }
+}
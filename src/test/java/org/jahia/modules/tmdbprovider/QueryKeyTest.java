@@ -0,0 +1,65 @@
+package org.jahia.modules.tmdbprovider;
+
+import org.jahia.modules.external.ExternalQuery;
+import org.junit.Test;
+
+import javax.jcr.query.qom.ChildNode;
+import javax.jcr.query.qom.Constraint;
+import javax.jcr.query.qom.LowerCase;
+import javax.jcr.query.qom.Ordering;
+
+import static org.jahia.modules.tmdbprovider.QuerySupport.*;
+import static org.junit.Assert.*;
+
+public class QueryKeyTest {
+
+    private final Constraint title = compare("jcr:title", "like", "%fight%");
+    private final Constraint votes = compare("vote_count", ">", 100L);
+    private final Constraint adult = compare("adult", "=", "false");
+
+    @Test
+    public void operandsAreFlattenedAndSorted() throws Exception {
+        assertEquals(key(query(and(title, and(votes, adult)))), key(query(and(and(adult, title), votes))));
+        assertEquals(key(query(or(title, votes))), key(query(or(votes, title))));
+        assertNotEquals(key(query(and(title, votes))), key(query(or(title, votes))));
+        assertNotEquals(key(query(and(title, votes))), key(query(and(title, not(votes)))));
+    }
+
+    @Test
+    public void selectorNamesAreLeftOut() throws Exception {
+        assertEquals(key(query("jnt:movie", "movie", votes)), key(query("jnt:movie", "m", votes)));
+    }
+
+    @Test
+    public void literalsAreWrittenWithTheirType() throws Exception {
+        assertNotEquals(key(query(compare("vote_count", "=", 100L))), key(query(compare("vote_count", "=", "100"))));
+        assertNotEquals(key(query(compare("jcr:title", "=", "a' or 'b"))),
+                key(query(or(compare("jcr:title", "=", "a"), compare("jcr:title", "=", "b")))));
+        assertNotEquals(key(query(compare(property("jcr:title"), "=", "fight"))),
+                key(query(compare(node(LowerCase.class, "getOperand", property("jcr:title")), "=", "fight"))));
+    }
+
+    @Test
+    public void orderingsAndPaginationArePartOfTheKey() throws Exception {
+        Ordering ascending = ordering("release_date", true);
+        Ordering descending = ordering("release_date", false);
+        assertNotEquals(key(query(votes, ascending)), key(query(votes, descending)));
+        assertEquals(key(query(votes, ascending)), key(query(votes, ordering("release_date", true))));
+
+        ExternalQuery page = query(votes);
+        page.setOffset(20);
+        page.setLimit(20);
+        assertNotEquals(key(query(votes)), key(page));
+    }
+
+    @Test
+    public void unsupportedConstraintsAreNotCached() throws Exception {
+        Constraint child = node(ChildNode.class, "getParentPath", "/movies", "getSelectorName", "s");
+        assertNull(key(query(and(votes, child))));
+        assertNotNull(key(query(null)));
+    }
+
+    private static String key(ExternalQuery query) throws Exception {
+        return QueryKey.of("jnt:movie", query);
+    }
+}
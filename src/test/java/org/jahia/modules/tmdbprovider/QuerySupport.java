@@ -0,0 +1,107 @@
+package org.jahia.modules.tmdbprovider;
+
+import org.jahia.modules.external.ExternalQuery;
+
+import javax.jcr.PropertyType;
+import javax.jcr.Value;
+import javax.jcr.query.qom.*;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Query object model nodes for the tests and the benchmarks, written as <code>compare("vote_count", "&gt;", 100L)</code>.
+ */
+final class QuerySupport {
+
+    private static final Map<String, String> OPERATORS = new HashMap<>();
+
+    static {
+        OPERATORS.put("=", QueryObjectModelConstants.JCR_OPERATOR_EQUAL_TO);
+        OPERATORS.put("<>", QueryObjectModelConstants.JCR_OPERATOR_NOT_EQUAL_TO);
+        OPERATORS.put("<", QueryObjectModelConstants.JCR_OPERATOR_LESS_THAN);
+        OPERATORS.put("<=", QueryObjectModelConstants.JCR_OPERATOR_LESS_THAN_OR_EQUAL_TO);
+        OPERATORS.put(">", QueryObjectModelConstants.JCR_OPERATOR_GREATER_THAN);
+        OPERATORS.put(">=", QueryObjectModelConstants.JCR_OPERATOR_GREATER_THAN_OR_EQUAL_TO);
+        OPERATORS.put("like", QueryObjectModelConstants.JCR_OPERATOR_LIKE);
+    }
+
+    private QuerySupport() {
+    }
+
+    static ExternalQuery query(String nodeType, String selectorName, Constraint constraint, Ordering... orderings) {
+        Selector selector = node(Selector.class, "getNodeTypeName", nodeType, "getSelectorName", selectorName);
+        return new ExternalQuery(selector, constraint, orderings, new Column[0]);
+    }
+
+    static ExternalQuery query(Constraint constraint, Ordering... orderings) {
+        return query("jnt:movie", "s", constraint, orderings);
+    }
+
+    static ExternalQuery query(String nodeType, Constraint constraint, long offset, long limit) {
+        ExternalQuery query = query(nodeType, "s", constraint);
+        query.setOffset(offset);
+        query.setLimit(limit);
+        return query;
+    }
+
+    static Constraint and(Constraint a, Constraint b) {
+        return node(And.class, "getConstraint1", a, "getConstraint2", b);
+    }
+
+    static Constraint or(Constraint a, Constraint b) {
+        return node(Or.class, "getConstraint1", a, "getConstraint2", b);
+    }
+
+    static Constraint not(Constraint constraint) {
+        return node(Not.class, "getConstraint", constraint);
+    }
+
+    /**
+     * @param value a string, or a long for a long literal
+     */
+    static Constraint compare(String property, String operator, Object value) {
+        return compare(property(property), operator, value);
+    }
+
+    static Constraint compare(DynamicOperand operand, String operator, Object value) {
+        Value literal = node(Value.class, "getString", String.valueOf(value),
+                "getType", value instanceof Long ? PropertyType.LONG : PropertyType.STRING);
+        return node(Comparison.class, "getOperand1", operand, "getOperator", OPERATORS.get(operator),
+                "getOperand2", node(Literal.class, "getLiteralValue", literal));
+    }
+
+    static PropertyValue property(String property) {
+        return node(PropertyValue.class, "getPropertyName", property, "getSelectorName", "s");
+    }
+
+    static Ordering ordering(String property, boolean ascending) {
+        return node(Ordering.class, "getOperand", property(property), "getOrder",
+                ascending ? QueryObjectModelConstants.JCR_ORDER_ASCENDING : QueryObjectModelConstants.JCR_ORDER_DESCENDING);
+    }
+
+    /**
+     * @return a node answering its getters from the given method names and values, and parsing the other getters of a
+     * {@link Value} from its string
+     */
+    static <T> T node(Class<T> type, Object... getters) {
+        Map<Object, Object> values = new HashMap<>();
+        for (int i = 0; i < getters.length; i += 2) {
+            values.put(getters[i], getters[i + 1]);
+        }
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getLong":
+                    return Long.parseLong((String) values.get("getString"));
+                case "getDouble":
+                    return Double.parseDouble((String) values.get("getString"));
+                case "getBoolean":
+                    return Boolean.parseBoolean((String) values.get("getString"));
+                case "toString":
+                    return type.getSimpleName() + values;
+                default:
+                    return values.get(method.getName());
+            }
+        }));
+    }
+}
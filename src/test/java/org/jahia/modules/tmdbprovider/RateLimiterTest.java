@@ -0,0 +1,46 @@
+package org.jahia.modules.tmdbprovider;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RateLimiterTest {
+
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+    // Allowance for the time elapsed between two calls
+    private static final long TOLERANCE = TimeUnit.MILLISECONDS.toNanos(50);
+
+    @Test
+    public void fullBucketDoesNotWait() {
+        RateLimiter limiter = new RateLimiter(10);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, limiter.reserve());
+        }
+        assertTrue(limiter.reserve() > 0);
+    }
+
+    @Test
+    public void requestsHeldBackByAPauseAreSpacedByTheRate() {
+        RateLimiter limiter = new RateLimiter(10);
+        long pause = TimeUnit.SECONDS.toNanos(1);
+        limiter.pause(pause, TimeUnit.NANOSECONDS);
+
+        long previous = limiter.reserve();
+        assertTrue(previous >= pause - TOLERANCE);
+        for (int i = 0; i < 5; i++) {
+            long wait = limiter.reserve();
+            assertEquals(INTERVAL, wait - previous, TOLERANCE);
+            previous = wait;
+        }
+    }
+
+    @Test
+    public void shorterPauseDoesNotShortenTheCurrentOne() {
+        RateLimiter limiter = new RateLimiter(10);
+        limiter.pause(1, TimeUnit.SECONDS);
+        limiter.pause(10, TimeUnit.MILLISECONDS);
+        assertTrue(limiter.reserve() >= TimeUnit.SECONDS.toNanos(1) - TOLERANCE);
+    }
+}
@@ -0,0 +1,100 @@
+package org.jahia.modules.tmdbprovider;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Http client answering TMDB requests without any network access, and counting them by path. Requests without a
+ * response get a TMDB 404 payload.
+ */
+class StubHttpClient extends CloseableHttpClient {
+
+    interface Responses {
+        /**
+         * @return the body of the response to a request, or <code>null</code> if there is none
+         */
+        byte[] get(URI uri) throws IOException;
+    }
+
+    private static final byte[] NOT_FOUND = "{\"success\":false,\"status_code\":34,\"status_message\":\"The resource you requested could not be found.\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final Responses responses;
+    private final LongAdder requests = new LongAdder();
+    private final ConcurrentMap<String, LongAdder> requestsByPath = new ConcurrentHashMap<>();
+
+    StubHttpClient(Responses responses) {
+        this.responses = responses;
+    }
+
+    /**
+     * @return the number of requests answered
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * @return the number of requests answered for a path, like <code>/3/movie/550</code>
+     */
+    public long getRequests(String path) {
+        LongAdder count = requestsByPath.get(path);
+        return count != null ? count.sum() : 0;
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) throws IOException {
+        URI uri = URI.create(request.getRequestLine().getUri());
+        requests.increment();
+        requestsByPath.computeIfAbsent(uri.getPath(), path -> new LongAdder()).increment();
+        byte[] body = responses.get(uri);
+        return body != null ? new StubResponse(HttpStatus.SC_OK, "OK", body)
+                : new StubResponse(HttpStatus.SC_NOT_FOUND, "Not Found", NOT_FOUND);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    @Deprecated
+    public HttpParams getParams() {
+        return new BasicHttpParams();
+    }
+
+    @Override
+    @Deprecated
+    public ClientConnectionManager getConnectionManager() {
+        throw new UnsupportedOperationException();
+    }
+
+    private static final class StubResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+        private StubResponse(int status, String reason, byte[] body) {
+            super(HttpVersion.HTTP_1_1, status, reason);
+            setEntity(new ByteArrayEntity(body, ContentType.APPLICATION_JSON));
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
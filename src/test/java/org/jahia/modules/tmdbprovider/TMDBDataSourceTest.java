@@ -0,0 +1,159 @@
+package org.jahia.modules.tmdbprovider;
+
+import net.sf.ehcache.CacheManager;
+import org.jahia.modules.external.ExternalData;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.jcr.RepositoryException;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TMDBDataSourceTest {
+
+    private static final int THREADS = 16;
+
+    private static final String CONFIGURATION = "{\"images\":{\"secure_base_url\":\"https://image.tmdb.org/t/p/\","
+            + "\"backdrop_sizes\":[\"original\"],\"poster_sizes\":[\"original\"],\"profile_sizes\":[\"original\"]}}";
+
+    private CacheManager cacheManager;
+    private TMDBDataSource dataSource;
+
+    @After
+    public void stop() {
+        if (dataSource != null) {
+            dataSource.stop();
+        }
+        if (cacheManager != null) {
+            cacheManager.shutdown();
+        }
+    }
+
+    @Test
+    public void concurrentMissesCauseOneUpstreamCall() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        StubHttpClient client = start(uri -> {
+            if (uri.getPath().equals("/3/movie/550")) {
+                await(release);
+                return json("{\"id\":550,\"title\":\"Fight Club\",\"release_date\":\"1999-10-15\"}");
+            }
+            return null;
+        });
+
+        List<Future<Object>> results = ConcurrencySupport.runConcurrently(THREADS,
+                () -> dataSource.getItemByIdentifier("movie-550"), release);
+
+        for (Future<Object> result : results) {
+            assertEquals("/movies/1999/10/550", ((ExternalData) result.get(10, TimeUnit.SECONDS)).getPath());
+        }
+        assertEquals(1, client.getRequests("/3/movie/550"));
+    }
+
+    @Test
+    public void monthPagesAreFetchedConcurrently() throws Exception {
+        AtomicInteger loading = new AtomicInteger();
+        AtomicInteger maxLoading = new AtomicInteger();
+        StubHttpClient client = start(uri -> {
+            if (!uri.getPath().equals("/3/discover/movie")) {
+                return null;
+            }
+            maxLoading.accumulateAndGet(loading.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+                return monthPage(getPage(uri), 50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } finally {
+                loading.decrementAndGet();
+            }
+        });
+
+        List<String> children = dataSource.getChildren("/movies/1999/10");
+        int read = 0;
+        for (String child : children) {
+            assertEquals(String.valueOf(read++), child);
+        }
+        assertEquals(1000, read);
+        assertEquals(50, client.getRequests("/3/discover/movie"));
+        assertTrue("The 50 pages of the month should not be fetched one after the other", maxLoading.get() > 1);
+    }
+
+    @Test
+    public void monthNodesAreBuiltFromABoundedNumberOfPages() throws Exception {
+        StubHttpClient client = start(uri -> uri.getPath().equals("/3/discover/movie") ? monthPage(getPage(uri), 50) : null);
+
+        List<ExternalData> children = dataSource.getChildrenNodes("/movies/1999/10");
+        assertEquals(200, children.size());
+        assertEquals("/movies/1999/10/199", children.get(199).getPath());
+        assertEquals(10, client.getRequests("/3/discover/movie"));
+    }
+
+    @Test
+    public void titleSearchesAreAnsweredLocallyWhenTheIndexFillsThePage() throws Exception {
+        StubHttpClient client = start(uri -> {
+            if (uri.getPath().equals("/3/discover/movie")) {
+                return monthPage(getPage(uri), 1);
+            }
+            return uri.getPath().equals("/3/search/movie") ? json("{\"page\":1,\"results\":[],\"total_pages\":0,\"total_results\":0}") : null;
+        });
+        dataSource.getChildren("/movies/1999/10");
+
+        List<String> suggestions = dataSource.search(QuerySupport.query("jnt:movie", QuerySupport.compare("jcr:title", "like", "%fight cl%"), 0, 5));
+        assertEquals(5, suggestions.size());
+        assertEquals(0, client.getRequests("/3/search/movie"));
+
+        List<String> results = dataSource.search(QuerySupport.query("jnt:movie", QuerySupport.compare("jcr:title", "like", "%fight cl%"), 0, 30));
+        assertEquals(20, results.size());
+        assertTrue("A page the index cannot fill should be searched on TMDB", client.getRequests("/3/search/movie") > 0);
+    }
+
+    private static int getPage(URI uri) {
+        for (String parameter : uri.getQuery().split("&")) {
+            if (parameter.startsWith("page=")) {
+                return Integer.parseInt(parameter.substring("page=".length()));
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * @return a discover page of the movies of October 1999, whose ids are their positions in the month
+     */
+    private static byte[] monthPage(int page, int totalPages) {
+        StringBuilder json = new StringBuilder("{\"page\":").append(page).append(",\"results\":[");
+        for (int i = 0; i < 20; i++) {
+            json.append(i > 0 ? "," : "").append("{\"id\":").append((page - 1) * 20 + i)
+                    .append(",\"title\":\"Fight Club ").append((page - 1) * 20 + i).append("\",\"release_date\":\"1999-10-15\"}");
+        }
+        return json(json.append("],\"total_pages\":").append(totalPages).append(",\"total_results\":").append(totalPages * 20).append('}').toString());
+    }
+
+    private StubHttpClient start(StubHttpClient.Responses responses) {
+        StubHttpClient client = new StubHttpClient(uri -> uri.getPath().equals("/3/configuration") ? json(CONFIGURATION) : responses.get(uri));
+        cacheManager = DataSourceSupport.newCacheManager("tmdb-test");
+        dataSource = DataSourceSupport.newDataSource(client, cacheManager);
+        return client;
+    }
+
+    private static byte[] json(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+}
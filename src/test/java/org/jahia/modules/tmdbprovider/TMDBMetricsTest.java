@@ -0,0 +1,30 @@
+package org.jahia.modules.tmdbprovider;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TMDBMetricsTest {
+
+    @Test
+    public void countersByValueAreNamedAfterTheirPrefix() {
+        TMDBMetrics metrics = new TMDBMetrics();
+        metrics.increment("lazyProperty", "overview");
+        metrics.increment("lazyProperty", "overview");
+        metrics.increment("lazyProperty", "tagline");
+        metrics.increment("lazyProperty.overview");
+
+        assertEquals(Long.valueOf(3), metrics.getCounters().get("lazyProperty.overview"));
+        assertEquals(Long.valueOf(1), metrics.getCounters().get("lazyProperty.tagline"));
+    }
+
+    @Test
+    public void countersByValueStartAgainAfterAReset() {
+        TMDBMetrics metrics = new TMDBMetrics();
+        metrics.increment("lazyProperty", "overview");
+        metrics.reset();
+        metrics.increment("lazyProperty", "overview");
+
+        assertEquals(Long.valueOf(1), metrics.getCounters().get("lazyProperty.overview"));
+    }
+}
@@ -0,0 +1,70 @@
+package org.jahia.modules.tmdbprovider;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class TitleIndexTest {
+
+    private final TitleIndex index = new TitleIndex(10);
+
+    @Test
+    public void searchMatchesWordPrefixesWithoutAccentsNorCase() {
+        add("1", "Amélie", "Le Fabuleux Destin d'Amélie Poulain", 10);
+        add("2", "Fight Club", null, 20);
+
+        assertEquals(Collections.singletonList("/movies/1"), index.search("amelie fab", 10));
+        assertEquals(Collections.singletonList("/movies/1"), index.search("DESTIN", 10));
+        assertEquals(Collections.emptyList(), index.search("fight amelie", 10));
+        assertNull(index.search("a", 10));
+    }
+
+    @Test
+    public void searchReturnsTheMostPopularFirst() {
+        add("1", "Star Trek", null, 10);
+        add("2", "Star Wars", null, 30);
+        add("3", "A Star Is Born", null, 20);
+
+        assertEquals(Arrays.asList("/movies/2", "/movies/3", "/movies/1"), index.search("star", 10));
+        assertEquals(Arrays.asList("/movies/2", "/movies/3"), index.search("star", 2));
+    }
+
+    @Test
+    public void removedMoviesAreNotFound() {
+        add("1", "Star Trek", null, 10);
+
+        assertTrue(index.remove("1"));
+        assertFalse(index.remove("1"));
+        assertEquals(Collections.emptyList(), index.search("star", 10));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void clearedIndexIsEmpty() {
+        add("1", "Star Trek", null, 10);
+        add("2", "Star Wars", null, 30);
+
+        index.clear();
+        assertEquals(Collections.emptyList(), index.search("star", 10));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void fullIndexEvictsTheLeastPopular() {
+        for (int i = 1; i <= 10; i++) {
+            add(String.valueOf(i), "Movie " + i, null, i);
+        }
+        add("11", "Movie 11", null, 11);
+
+        assertEquals(10, index.size());
+        assertEquals(Arrays.asList("/movies/11", "/movies/10", "/movies/9", "/movies/8", "/movies/7", "/movies/6",
+                "/movies/5", "/movies/4", "/movies/3", "/movies/2"), index.search("movie", 20));
+    }
+
+    private void add(String id, String title, String originalTitle, double popularity) {
+        index.add(new Movie.Builder().id(id).title(title).originalTitle(originalTitle).popularity(popularity).build(), "/movies/" + id);
+    }
+}